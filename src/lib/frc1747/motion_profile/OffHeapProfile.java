@@ -0,0 +1,182 @@
+package lib.frc1747.motion_profile;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A generated translation and rotation profile stored outside of the Java heap.
+ * 
+ * The six columns written when saving a profile are stored one after another
+ * as little endian doubles in a direct buffer, so keeping many profiles loaded
+ * does not add to garbage collection pauses. Values are read straight from the
+ * buffer without being copied onto the heap.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class OffHeapProfile {
+	/**
+	 * The column containing the translation position (ft)
+	 */
+	public static final int TRANSLATION_POSITION = 0;
+	/**
+	 * The column containing the translation velocity (ft/s)
+	 */
+	public static final int TRANSLATION_VELOCITY = 1;
+	/**
+	 * The column containing the translation acceleration (ft/s^2)
+	 */
+	public static final int TRANSLATION_ACCELERATION = 2;
+	/**
+	 * The column containing the rotation position (rad)
+	 */
+	public static final int ROTATION_POSITION = 3;
+	/**
+	 * The column containing the rotation velocity (rad/s)
+	 */
+	public static final int ROTATION_VELOCITY = 4;
+	/**
+	 * The column containing the rotation acceleration (rad/s^2)
+	 */
+	public static final int ROTATION_ACCELERATION = 5;
+	/**
+	 * The number of columns in a profile
+	 */
+	public static final int COLUMNS = 6;
+	/**
+	 * The most points a profile can have, so every value can be found with an int offset into its buffer
+	 */
+	public static final int MAX_LENGTH = Integer.MAX_VALUE / (COLUMNS * 8);
+	
+	private ByteBuffer buffer;
+	private int length;
+	
+	/**
+	 * Creates an OffHeapProfile backed by an existing buffer.
+	 * The buffer must contain the columns one after another, starting at its position,
+	 * as little endian doubles.
+	 * 
+	 * @param buffer the buffer containing the profile
+	 * @param length the number of points in the profile
+	 * @throws IllegalArgumentException if the length is negative, more than {@link #MAX_LENGTH},
+	 * or more than the buffer holds
+	 */
+	public OffHeapProfile(ByteBuffer buffer, int length) {
+		if(length < 0 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("A profile cannot have " + length + " points");
+		}
+		if(buffer.remaining() < (long)length * COLUMNS * 8) {
+			throw new IllegalArgumentException("Buffer is too small for " + length + " points");
+		}
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.length = length;
+	}
+	
+	/**
+	 * Creates an OffHeapProfile with all zero points in newly allocated direct memory.
+	 * 
+	 * @param length the number of points in the profile
+	 * @return the profile
+	 * @throws IllegalArgumentException if the length is negative or more than {@link #MAX_LENGTH}
+	 */
+	public static OffHeapProfile allocate(int length) {
+		if(length < 0 || length > MAX_LENGTH) {
+			throw new IllegalArgumentException("A profile cannot have " + length + " points");
+		}
+		return new OffHeapProfile(ByteBuffer.allocateDirect(length * COLUMNS * 8), length);
+	}
+	
+	/**
+	 * Creates an OffHeapProfile from generated translation and rotation profiles.
+	 * 
+	 * @param timePoints the translation profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param angularTimePoints the rotation profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param translationScale the scale to apply to the translation profile (-1 to reverse it)
+	 * @param rotationScale the scale to apply to the rotation profile (-1 to reverse it)
+	 * @return the profile
+	 */
+	public static OffHeapProfile fromProfiles(double[][] timePoints, double[][] angularTimePoints,
+			double translationScale, double rotationScale) {
+		OffHeapProfile profile = allocate(timePoints.length);
+		for(int i = 0;i < timePoints.length;i++) {
+			for(int j = 0;j < 3;j++) {
+				profile.set(TRANSLATION_POSITION + j, i, translationScale * timePoints[i][j]);
+				profile.set(ROTATION_POSITION + j, i, rotationScale * angularTimePoints[i][j]);
+			}
+		}
+		return profile;
+	}
+	
+	/**
+	 * Creates an OffHeapProfile from generated translation and rotation profiles.
+	 * 
+	 * @param timePoints the translation profile
+	 * @param angularTimePoints the rotation profile
+	 * @param translationScale the scale to apply to the translation profile (-1 to reverse it)
+	 * @param rotationScale the scale to apply to the rotation profile (-1 to reverse it)
+	 * @return the profile
+	 */
+	public static OffHeapProfile fromProfiles(Trajectory timePoints, Trajectory angularTimePoints,
+			double translationScale, double rotationScale) {
+		OffHeapProfile profile = allocate(timePoints.length);
+		for(int i = 0;i < timePoints.length;i++) {
+			profile.set(TRANSLATION_POSITION, i, translationScale * timePoints.x[i]);
+			profile.set(TRANSLATION_VELOCITY, i, translationScale * timePoints.v[i]);
+			profile.set(TRANSLATION_ACCELERATION, i, translationScale * timePoints.a[i]);
+			profile.set(ROTATION_POSITION, i, rotationScale * angularTimePoints.x[i]);
+			profile.set(ROTATION_VELOCITY, i, rotationScale * angularTimePoints.v[i]);
+			profile.set(ROTATION_ACCELERATION, i, rotationScale * angularTimePoints.a[i]);
+		}
+		return profile;
+	}
+	
+	/**
+	 * Gets the number of points in this profile.
+	 * 
+	 * @return the number of points
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Gets a single value of this profile.
+	 * 
+	 * @param column the column to read, such as {@link #TRANSLATION_VELOCITY}
+	 * @param index the point to read
+	 * @return the value
+	 */
+	public double get(int column, int index) {
+		return buffer.getDouble(offset(column, index));
+	}
+	
+	/**
+	 * Sets a single value of this profile.
+	 * 
+	 * @param column the column to write, such as {@link #TRANSLATION_VELOCITY}
+	 * @param index the point to write
+	 * @param value the value
+	 */
+	public void set(int column, int index, double value) {
+		buffer.putDouble(offset(column, index), value);
+	}
+	
+	/**
+	 * Gets a read only view of the memory backing this profile.
+	 * 
+	 * @return the columns one after another as little endian doubles
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private int offset(int column, int index) {
+		if(column < 0 || column >= COLUMNS || index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Column " + column + ", point " + index);
+		}
+		// The length is at most MAX_LENGTH, so the offset always fits in an int
+		return (int)(((long)column * length + index) * 8);
+	}
+}
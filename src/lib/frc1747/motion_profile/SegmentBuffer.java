@@ -0,0 +1,91 @@
+package lib.frc1747.motion_profile;
+
+/**
+ * A flattened path stored as separate distance and rotation difference columns.
+ * 
+ * The arrays may be longer than the path so that they can be reused.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class SegmentBuffer {
+	/**
+	 * The distance difference of each segment
+	 */
+	public double[] ds;
+	/**
+	 * The rotation difference of each segment
+	 */
+	public double[] dtheta;
+	/**
+	 * The number of segments in the path
+	 */
+	public int length;
+	
+	/**
+	 * Creates a SegmentBuffer with all zero segments.
+	 * 
+	 * @param length the number of segments
+	 */
+	public SegmentBuffer(int length) {
+		ds = new double[length];
+		dtheta = new double[length];
+		this.length = length;
+	}
+	
+	/**
+	 * Changes the number of segments, growing the arrays if they are too short.
+	 * The values of existing segments are kept, and any new segments are zeroed.
+	 * 
+	 * @param length the new number of segments
+	 */
+	public void setLength(int length) {
+		if(length > ds.length) {
+			int capacity = Math.max(length, ds.length + ds.length/2);
+			double[] newDs = new double[capacity];
+			double[] newDtheta = new double[capacity];
+			System.arraycopy(ds, 0, newDs, 0, this.length);
+			System.arraycopy(dtheta, 0, newDtheta, 0, this.length);
+			ds = newDs;
+			dtheta = newDtheta;
+		}
+		else {
+			for(int i = this.length;i < length;i++) {
+				ds[i] = 0;
+				dtheta[i] = 0;
+			}
+		}
+		this.length = length;
+	}
+	
+	/**
+	 * Creates a SegmentBuffer from a path stored as rows.
+	 * 
+	 * @param rows the path<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @return the path as columns
+	 */
+	public static SegmentBuffer fromRows(double[][] rows) {
+		SegmentBuffer segments = new SegmentBuffer(rows.length);
+		for(int i = 0;i < rows.length;i++) {
+			segments.ds[i] = rows[i][0];
+			segments.dtheta[i] = rows[i][1];
+		}
+		return segments;
+	}
+	
+	/**
+	 * Converts this SegmentBuffer to a path stored as rows.
+	 * 
+	 * @return the path as rows<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 */
+	public double[][] toRows() {
+		double[][] rows = new double[length][2];
+		for(int i = 0;i < length;i++) {
+			rows[i][0] = ds[i];
+			rows[i][1] = dtheta[i];
+		}
+		return rows;
+	}
+}
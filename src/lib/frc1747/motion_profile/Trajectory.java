@@ -0,0 +1,104 @@
+package lib.frc1747.motion_profile;
+
+/**
+ * A one dimensional profile stored as separate position, velocity, and acceleration columns.
+ * 
+ * Storing each column as a single array keeps the values of each column next to each other
+ * in memory, instead of spreading them across one small array per point.
+ * The arrays may be longer than the profile so that they can be reused.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class Trajectory {
+	/**
+	 * The position at each point
+	 */
+	public double[] x;
+	/**
+	 * The velocity at each point
+	 */
+	public double[] v;
+	/**
+	 * The acceleration at each point
+	 */
+	public double[] a;
+	/**
+	 * The number of points in the profile
+	 */
+	public int length;
+	
+	/**
+	 * Creates a Trajectory with all zero points.
+	 * 
+	 * @param length the number of points
+	 */
+	public Trajectory(int length) {
+		x = new double[length];
+		v = new double[length];
+		a = new double[length];
+		this.length = length;
+	}
+	
+	/**
+	 * Changes the number of points, growing the arrays if they are too short.
+	 * The values of existing points are kept, and any new points are zeroed.
+	 * 
+	 * @param length the new number of points
+	 */
+	public void setLength(int length) {
+		if(length > x.length) {
+			int capacity = Math.max(length, x.length + x.length/2);
+			double[] newX = new double[capacity];
+			double[] newV = new double[capacity];
+			double[] newA = new double[capacity];
+			System.arraycopy(x, 0, newX, 0, this.length);
+			System.arraycopy(v, 0, newV, 0, this.length);
+			System.arraycopy(a, 0, newA, 0, this.length);
+			x = newX;
+			v = newV;
+			a = newA;
+		}
+		else {
+			for(int i = this.length;i < length;i++) {
+				x[i] = 0;
+				v[i] = 0;
+				a[i] = 0;
+			}
+		}
+		this.length = length;
+	}
+	
+	/**
+	 * Creates a Trajectory from a profile stored as rows.
+	 * 
+	 * @param rows the profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @return the profile as columns
+	 */
+	public static Trajectory fromRows(double[][] rows) {
+		Trajectory trajectory = new Trajectory(rows.length);
+		for(int i = 0;i < rows.length;i++) {
+			trajectory.x[i] = rows[i][0];
+			trajectory.v[i] = rows[i][1];
+			trajectory.a[i] = rows[i][2];
+		}
+		return trajectory;
+	}
+	
+	/**
+	 * Converts this Trajectory to a profile stored as rows.
+	 * 
+	 * @return the profile as rows<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	public double[][] toRows() {
+		double[][] rows = new double[length][3];
+		for(int i = 0;i < length;i++) {
+			rows[i][0] = x[i];
+			rows[i][1] = v[i];
+			rows[i][2] = a[i];
+		}
+		return rows;
+	}
+}
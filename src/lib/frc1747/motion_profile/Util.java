@@ -26,4 +26,110 @@ public class Util {
 			double out_min, double out_max) {
 		return (input - in_min) * (out_max - out_min) / (in_max - in_min) + out_min;
 	}
+	
+	/**
+	 * A cubic Hermite interpolation function, which also matches the slope at each point
+	 * 
+	 * With slopes from {@link #hermiteSlope(double[], double[], int, int)}, the output changes smoothly
+	 * from one pair of points to the next, instead of only its value being continuous.
+	 * Where that would make the slope between the points larger than the slope at either point and the slope
+	 * between them, such as at the end of a constant acceleration, both slopes are pulled toward the slope between
+	 * the points just enough to prevent it, so resampling a velocity never accelerates harder than the profile.
+	 * 
+	 * @param input the input (usually between in_min and in_max)
+	 * @param in_min the input at one point
+	 * @param in_max the input at another point
+	 * @param out_min what the output will be if the input is at in_min
+	 * @param out_max what the output will be if the input is at in_max
+	 * @param slope_min the slope of the output at in_min
+	 * @param slope_max the slope of the output at in_max
+	 * @return a number usually between out_min and out_max based on
+	 * the relation between input and in_min and min_max
+	 */
+	public static double hermiteInterpolate(
+			double input,
+			double in_min, double in_max,
+			double out_min, double out_max,
+			double slope_min, double slope_max) {
+		double h = in_max - in_min;
+		double u = (input - in_min) / h;
+		
+		// The slope is the secant plus a quadratic in u that is the difference of each end slope
+		// from the secant at its end, so scale both differences until the quadratic fits in the limit
+		double secant = (out_max - out_min) / h;
+		if(Double.isFinite(secant)) {
+			double limit = Math.max(Math.abs(secant), Math.max(Math.abs(slope_min), Math.abs(slope_max)));
+			double a = slope_min - secant;
+			double b = slope_max - secant;
+			double peak = Math.max(a, b);
+			double trough = Math.min(a, b);
+			double vertex = (2*a + b) / (3 * (a + b));
+			if(vertex > 0 && vertex < 1) {
+				double extreme = a - (2*a + b) * vertex;
+				peak = Math.max(peak, extreme);
+				trough = Math.min(trough, extreme);
+			}
+			double scale = 1;
+			if(secant + peak > limit) {
+				scale = (limit - secant) / peak;
+			}
+			if(secant + trough < -limit) {
+				scale = Math.min(scale, (-limit - secant) / trough);
+			}
+			slope_min = secant + a * scale;
+			slope_max = secant + b * scale;
+		}
+		
+		// A cubic grows quickly past the points, so continue in a straight line instead
+		if(u < 0) {
+			return out_min + (input - in_min) * slope_min;
+		}
+		if(u > 1) {
+			return out_max + (input - in_max) * slope_max;
+		}
+		double u2 = u * u;
+		double u3 = u2 * u;
+		return (2*u3 - 3*u2 + 1) * out_min
+				+ (u3 - 2*u2 + u) * h * slope_min
+				+ (-2*u3 + 3*u2) * out_max
+				+ (u3 - u2) * h * slope_max;
+	}
+	
+	/**
+	 * Finds the slope at a point for {@link #hermiteInterpolate}.
+	 * 
+	 * The slope is a weighted harmonic mean of the slopes to the points on either side,
+	 * and is zero where the output turns around, so the interpolation never goes past either point.
+	 * The first and last points use the slope to the point next to them.
+	 * 
+	 * @param inputs the input at each point
+	 * @param outputs the output at each point
+	 * @param k the index of the point
+	 * @param length the number of points
+	 * @return the slope of the output at the point
+	 */
+	public static double hermiteSlope(double[] inputs, double[] outputs, int k, int length) {
+		if(length < 2) {
+			return 0;
+		}
+		if(k == 0 || k == length-1) {
+			int i = k == 0 ? 0 : k-1;
+			double h = inputs[i+1] - inputs[i];
+			return h == 0 ? 0 : (outputs[i+1] - outputs[i]) / h;
+		}
+		
+		double h0 = inputs[k] - inputs[k-1];
+		double h1 = inputs[k+1] - inputs[k];
+		if(h0 == 0 || h1 == 0) {
+			return 0;
+		}
+		double d0 = (outputs[k] - outputs[k-1]) / h0;
+		double d1 = (outputs[k+1] - outputs[k]) / h1;
+		if(d0 * d1 <= 0) {
+			return 0;
+		}
+		double w0 = 2*Math.abs(h1) + Math.abs(h0);
+		double w1 = Math.abs(h1) + 2*Math.abs(h0);
+		return (w0 + w1) / (w0/d0 + w1/d1);
+	}
 }
@@ -0,0 +1,367 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryCursor;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+/**
+ * Generates profiles for saved waypoint files without the GUI.
+ * 
+ * Each waypoint file is generated with its own parameters, and the profile is written
+ * in the same format as saving it from the profile generator.
+ * Files are generated in parallel, one per thread.
+ * If a {@link ProfileCache} is given, profiles that were already generated are copied from it instead.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class BatchGenerator {
+	private ProfileCache cache;
+	private ThreadLocal<TrajectoryPipeline> pipelines;
+	private ThreadLocal<SegmentBuffer> segmentBuffers;
+	private ThreadLocal<ProfileCsvWriter> writers;
+	
+	/**
+	 * Creates a BatchGenerator that always generates profiles.
+	 */
+	public BatchGenerator() {
+		this(null);
+	}
+	
+	/**
+	 * Creates a BatchGenerator that reuses profiles from a cache.
+	 * 
+	 * @param cache the cache of generated profiles, or null to always generate profiles
+	 */
+	public BatchGenerator(ProfileCache cache) {
+		this.cache = cache;
+		pipelines = ThreadLocal.withInitial(TrajectoryPipeline::new);
+		segmentBuffers = ThreadLocal.withInitial(() -> new SegmentBuffer(0));
+		writers = ThreadLocal.withInitial(ProfileCsvWriter::new);
+	}
+	
+	/**
+	 * Generates the translational and rotational profiles for the waypoints and parameters in a file.
+	 * The returned profiles are overwritten by the next generation on the same thread.
+	 * 
+	 * @param waypointFile the waypoints and parameters
+	 * @return the generated profiles
+	 */
+	public TrajectoryPipeline generate(WaypointFile waypointFile) {
+		return setUp(waypointFile).generate(segmentBuffers.get());
+	}
+	
+	/**
+	 * Times the waypoints and parameters in a file, and returns a cursor over the time steps
+	 * of the translational and rotational profiles instead of generating them.
+	 * The cursor is moved by the next generation on the same thread.
+	 * 
+	 * @param waypointFile the waypoints and parameters
+	 * @return the cursor at the first time step
+	 */
+	public TrajectoryCursor stream(WaypointFile waypointFile) {
+		return setUp(waypointFile).stream(segmentBuffers.get());
+	}
+	
+	/**
+	 * Flattens the waypoints into this thread's segment buffer, and sets up this thread's pipeline
+	 * with the parameters.
+	 */
+	private TrajectoryPipeline setUp(WaypointFile waypointFile) {
+		if(waypointFile.waypoints.size() < 2) {
+			throw new IllegalArgumentException("At least two waypoints are needed to generate a profile");
+		}
+		Waypoint[] waypoints = waypointFile.waypoints.toArray(new Waypoint[0]);
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		// The arc lengths place the waypoints and size each spline's part of the segments
+		double[] arcLengths = SplineGenerator.arcLengthsFromSplines(splines, waypointFile.i_sample_count);
+		double[][] waypointLimits = SplineGenerator.waypointLimitsFromArcLengths(waypoints, arcLengths);
+		SegmentBuffer profileSegments = segmentBuffers.get();
+		SplineGenerator.parallelFlattenProfile(splines, arcLengths, waypointFile.i_sample_length,
+				profileSegments);
+		
+		return pipelines.get()
+				.setLimits(waypointFile.v_max, waypointFile.a_max, waypointFile.j_max)
+				.setWheelbaseWidth(waypointFile.w_width)
+				.setTimestep(waypointFile.dt)
+				.setWaypointLimits(waypointLimits);
+	}
+	
+	/**
+	 * Generates the profile for a waypoint file, or copies it from the cache.
+	 * Unlike {@link #generate(WaypointFile)}, the returned profile is not overwritten by the next generation.
+	 * A profile that cannot be saved to the cache is still returned.
+	 * 
+	 * @param input the waypoint file to read
+	 * @return the profile and the parameters it was generated with
+	 * @throws IOException if the waypoint file could not be read
+	 */
+	public ProfileFile generateProfile(File input) throws IOException {
+		WaypointFile waypointFile = WaypointFile.read(input);
+		String key = null;
+		OffHeapProfile profile = null;
+		if(cache != null) {
+			key = ProfileCache.key(waypointFile);
+			profile = cache.get(key);
+		}
+		
+		if(profile == null) {
+			TrajectoryPipeline pipeline = generate(waypointFile);
+			profile = OffHeapProfile.fromProfiles(pipeline.getTimePoints(), pipeline.getAngularTimePoints(), 1, 1);
+			if(cache != null) {
+				try {
+					cache.put(key, profile);
+				}
+				catch (IOException ex) {
+					System.err.println("Could not cache " + input.getName() + ", " + ex);
+				}
+			}
+		}
+		return new ProfileFile(waypointFile, profile);
+	}
+	
+	/**
+	 * Generates the profile for a waypoint file and saves it.
+	 * Output files ending in {@link ProfileFile#EXTENSION} are saved as binary profiles,
+	 * ones ending in {@link CompressedProfileWriter#EXTENSION} as compressed profiles,
+	 * and anything else in the format used by the profile generator.
+	 * Without a cache, compressed profiles are saved one time step at a time as they are generated.
+	 * 
+	 * @param input the waypoint file to read
+	 * @param output the profile file to write
+	 * @return the number of time steps in the profile
+	 * @throws IOException if a file could not be read or written
+	 */
+	public int generate(File input, File output) throws IOException {
+		if(cache == null && output.getName().endsWith(CompressedProfileWriter.EXTENSION)) {
+			WaypointFile waypointFile = WaypointFile.read(input);
+			TrajectoryCursor cursor = stream(waypointFile);
+			double[] timePoint = new double[3];
+			double[] angularTimePoint = new double[3];
+			try(CompressedProfileWriter writer = new CompressedProfileWriter(output,
+					new ProfileFile(waypointFile, null))) {
+				while(cursor.hasNext()) {
+					cursor.next(timePoint, angularTimePoint);
+					writer.write(timePoint, angularTimePoint);
+				}
+				writer.finish();
+				return writer.getLength();
+			}
+		}
+		
+		ProfileFile profileFile = generateProfile(input);
+		OffHeapProfile profile = profileFile.profile;
+		if(output.getName().endsWith(ProfileFile.EXTENSION)) {
+			ProfileFile.write(output, profileFile);
+		}
+		else if(output.getName().endsWith(CompressedProfileWriter.EXTENSION)) {
+			CompressedProfileWriter.write(output, profileFile, CompressedProfileWriter.defaultResolutions());
+		}
+		else {
+			writers.get().write(output, profile);
+		}
+		return profile.getLength();
+	}
+	
+	/**
+	 * Saves a profile in the format used by the profile generator.
+	 * 
+	 * @param file the file to write
+	 * @param profile the translational and rotational profile
+	 * @throws IOException if the file could not be written
+	 */
+	public static void writeProfile(File file, OffHeapProfile profile) throws IOException {
+		new ProfileCsvWriter().write(file, profile);
+	}
+	
+	/**
+	 * Reads a profile saved in the format used by the profile generator.
+	 * 
+	 * @param file the file to read
+	 * @return the translational and rotational profile
+	 * @throws CsvFormatException if a value in the file is not a number
+	 * @throws IOException if the file could not be read
+	 */
+	public static OffHeapProfile readProfile(File file) throws IOException {
+		CsvParser parser = CsvParser.read(file);
+		if(!parser.nextRow()) {
+			throw new IOException(file + " is empty");
+		}
+		parser.skipField();
+		int length = parser.nextInt();
+		if(length < 0) {
+			throw parser.error("the length cannot be negative");
+		}
+		
+		OffHeapProfile profile = OffHeapProfile.allocate(length);
+		for(int i = 0;i < length;i++) {
+			if(!parser.nextRow()) {
+				throw new IOException(file + " has " + i + " points instead of " + length);
+			}
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				profile.set(j, i, parser.nextDouble());
+			}
+		}
+		return profile;
+	}
+	
+	/**
+	 * Generates a profile for every waypoint file in a directory.
+	 * 
+	 * @param args the directory of waypoint files, and optionally the directory to write the profiles to
+	 * (defaults to a profiles directory inside the waypoint directory).
+	 * These can be preceded by {@code -cache <directory>} to reuse profiles across runs,
+	 * {@code -cache-size <MB>} to limit the size of the cache (defaults to 256 MB),
+	 * {@code -format binary} or {@code -format compressed} to save binary or compressed profiles
+	 * instead of text (defaults to csv),
+	 * and {@code -bundle <file>} to save every profile into one {@link ProfileBundle} instead,
+	 * named after its waypoint file.
+	 */
+	public static void main(String[] args) {
+		File cacheDirectory = null;
+		long cacheSize = 256;
+		String extension = ".csv";
+		File bundleFile = null;
+		int argument = 0;
+		for(;argument+1 < args.length && args[argument].startsWith("-");argument += 2) {
+			if(args[argument].equals("-cache")) {
+				cacheDirectory = new File(args[argument+1]);
+			}
+			else if(args[argument].equals("-cache-size")) {
+				cacheSize = Long.parseLong(args[argument+1]);
+			}
+			else if(args[argument].equals("-bundle")) {
+				bundleFile = new File(args[argument+1]);
+			}
+			else if(args[argument].equals("-format") && args[argument+1].matches("csv|binary|compressed")) {
+				extension = args[argument+1].equals("binary") ? ProfileFile.EXTENSION
+						: args[argument+1].equals("compressed") ? CompressedProfileWriter.EXTENSION : ".csv";
+			}
+			else {
+				break;
+			}
+		}
+		if(argument >= args.length || args[argument].startsWith("-")) {
+			System.err.println("Usage: BatchGenerator [-cache <directory>] [-cache-size <MB>] "
+					+ "[-format csv|binary|compressed] [-bundle <file>] <waypoint directory> [profile directory]");
+			System.exit(2);
+		}
+		File inputDirectory = new File(args[argument]);
+		File outputDirectory = argument+1 < args.length ?
+				new File(args[argument+1]) : new File(inputDirectory, "profiles");
+		File[] inputs = inputDirectory.listFiles((directory, name) -> name.endsWith(".csv"));
+		if(inputs == null) {
+			System.err.println("Could not list " + inputDirectory);
+			System.exit(1);
+		}
+		Arrays.sort(inputs);
+		if(bundleFile == null) {
+			outputDirectory.mkdirs();
+		}
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ProfileCache cache = null;
+		if(cacheDirectory != null) {
+			try {
+				cache = new ProfileCache(cacheDirectory, cacheSize * 1024 * 1024);
+			}
+			catch (IOException ex) {
+				System.err.println("Could not open the cache, " + ex);
+				System.exit(1);
+			}
+		}
+		BatchGenerator generator = new BatchGenerator(cache);
+		long start = System.nanoTime();
+		
+		// Each file returns its number of time steps and how long it took
+		List<Future<long[]>> results = new ArrayList<>(inputs.length);
+		ProfileFile[] bundled = new ProfileFile[inputs.length];
+		boolean bundle = bundleFile != null;
+		for(int i = 0;i < inputs.length;i++) {
+			File input = inputs[i];
+			String name = input.getName();
+			name = name.substring(0, name.length() - ".csv".length()) + extension;
+			File output = new File(outputDirectory, name);
+			int index = i;
+			results.add(pool.submit(() -> {
+				long fileStart = System.nanoTime();
+				int length;
+				if(bundle) {
+					bundled[index] = generator.generateProfile(input);
+					length = bundled[index].profile.getLength();
+				}
+				else {
+					length = generator.generate(input, output);
+				}
+				return new long[] {length, System.nanoTime() - fileStart};
+			}));
+		}
+		
+		long points = 0;
+		int failures = 0;
+		for(int i = 0;i < inputs.length;i++) {
+			try {
+				long[] result = results.get(i).get();
+				points += result[0];
+				System.out.format("%s: %d points in %.1f ms\n", inputs[i].getName(), result[0], result[1] / 1E6);
+			}
+			catch (ExecutionException ex) {
+				failures++;
+				System.err.format("%s: failed, %s\n", inputs[i].getName(), ex.getCause());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		pool.shutdown();
+		
+		if(bundle) {
+			Map<String, ProfileFile> profiles = new LinkedHashMap<>();
+			for(int i = 0;i < inputs.length;i++) {
+				if(bundled[i] != null) {
+					String name = inputs[i].getName();
+					profiles.put(name.substring(0, name.length() - ".csv".length()), bundled[i]);
+				}
+			}
+			try {
+				ProfileBundle.write(bundleFile, profiles);
+				System.out.format("Bundled %d profiles into %s (%d bytes)\n", profiles.size(), bundleFile, bundleFile.length());
+			}
+			catch (IOException ex) {
+				System.err.println("Could not write the bundle, " + ex);
+				System.exit(1);
+			}
+		}
+		
+		double seconds = (System.nanoTime() - start) / 1E9;
+		System.out.format("Generated %d of %d files (%d points) in %.2f s on %d threads: "
+				+ "%.1f files/s, %.0f points/s\n",
+				inputs.length - failures, inputs.length, points, seconds, threads,
+				(inputs.length - failures) / seconds, points / seconds);
+		if(cache != null) {
+			System.out.format("Cache: %d hits, %d misses, %d bytes\n",
+					cache.getHits(), cache.getMisses(), cache.getSize());
+		}
+		if(failures > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+
+/**
+ * Reads a profile saved by a {@link CompressedProfileWriter}, one time step at a time.
+ * 
+ * Nothing is decoded until it is asked for, so a follower can start on the first time steps
+ * while the rest of the profile is still in the file.
+ * When the resolution is one over a whole number like the default, each value is decoded to the double
+ * nearest its rounded decimal, the same as parsing it from the text format.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class CompressedProfileReader {
+	private ByteBuffer buffer;
+	private String name;
+	private int length;
+	private int index;
+	private ProfileFile parameters;
+	private double[] resolutions;
+	private double[] scales;
+	private long[] previous;
+	private long[] previousDelta;
+	
+	/**
+	 * Creates a CompressedProfileReader for a compressed profile in a buffer.
+	 * 
+	 * @param buffer the buffer containing the compressed profile, starting at its position
+	 * @param name the name of the profile, used in error messages
+	 * @throws IOException if the buffer does not contain a compressed profile
+	 */
+	public CompressedProfileReader(ByteBuffer buffer, String name) throws IOException {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.name = name;
+		if(this.buffer.remaining() < CompressedProfileWriter.HEADER_BYTES
+				|| this.buffer.getInt(0) != CompressedProfileWriter.MAGIC) {
+			throw new IOException(name + " is not a compressed profile");
+		}
+		int version = this.buffer.getInt(4);
+		if(version != CompressedProfileWriter.VERSION) {
+			throw new IOException(name + " is version " + version + ", only version "
+					+ CompressedProfileWriter.VERSION + " can be read");
+		}
+		length = this.buffer.getInt(8);
+		int columns = this.buffer.getInt(12);
+		if(columns != OffHeapProfile.COLUMNS) {
+			throw new IOException(name + " has " + columns + " columns instead of " + OffHeapProfile.COLUMNS);
+		}
+		// Every value takes at least one byte
+		if(length < 0 || this.buffer.remaining() - CompressedProfileWriter.HEADER_BYTES < (long)length * columns) {
+			throw new IOException(name + " is truncated");
+		}
+		
+		parameters = new ProfileFile();
+		this.buffer.position(16);
+		ProfileFile.getParameters(this.buffer, parameters);
+		resolutions = new double[OffHeapProfile.COLUMNS];
+		scales = new double[OffHeapProfile.COLUMNS];
+		for(int i = 0;i < OffHeapProfile.COLUMNS;i++) {
+			resolutions[i] = this.buffer.getDouble();
+			scales[i] = CompressedProfileWriter.scale(resolutions[i]);
+		}
+		previous = new long[OffHeapProfile.COLUMNS];
+		previousDelta = new long[OffHeapProfile.COLUMNS];
+	}
+	
+	/**
+	 * Maps a compressed profile into memory.
+	 * 
+	 * @param file the file to map
+	 * @return the reader, before the first time step
+	 * @throws IOException if the file could not be read or is not a compressed profile
+	 */
+	public static CompressedProfileReader map(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new CompressedProfileReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+					file.toString());
+		}
+	}
+	
+	/**
+	 * Gets the number of time steps in the profile.
+	 * 
+	 * @return the number of time steps
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Gets the parameters the profile was generated with.
+	 * 
+	 * @return the parameters, with no profile
+	 */
+	public ProfileFile getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * Gets the resolution a column was saved with.
+	 * 
+	 * @param column the column, in the order of {@link OffHeapProfile}
+	 * @return the resolution of the column
+	 */
+	public double getResolution(int column) {
+		return resolutions[column];
+	}
+	
+	/**
+	 * Checks if there are any time steps left.
+	 * 
+	 * @return if there are any time steps left
+	 */
+	public boolean hasNext() {
+		return index < length;
+	}
+	
+	/**
+	 * Decodes the next time step of the translational and rotational profiles.
+	 * 
+	 * @param timePoint the array to write the translational time step into<br>
+	 * The format is [x, v, a]
+	 * @param angularTimePoint the array to write the rotational time step into<br>
+	 * The format is [x, v, a]
+	 * @throws IOException if the profile ends early
+	 */
+	public void next(double[] timePoint, double[] angularTimePoint) throws IOException {
+		step();
+		timePoint[0] = value(OffHeapProfile.TRANSLATION_POSITION);
+		timePoint[1] = value(OffHeapProfile.TRANSLATION_VELOCITY);
+		timePoint[2] = value(OffHeapProfile.TRANSLATION_ACCELERATION);
+		angularTimePoint[0] = value(OffHeapProfile.ROTATION_POSITION);
+		angularTimePoint[1] = value(OffHeapProfile.ROTATION_VELOCITY);
+		angularTimePoint[2] = value(OffHeapProfile.ROTATION_ACCELERATION);
+	}
+	
+	/**
+	 * Decodes all of the time steps that are left.
+	 * 
+	 * @return the rest of the translational and rotational profile
+	 * @throws IOException if the profile ends early
+	 */
+	public OffHeapProfile decode() throws IOException {
+		OffHeapProfile profile = OffHeapProfile.allocate(length - index);
+		for(int i = 0;hasNext();i++) {
+			step();
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				profile.set(j, i, value(j));
+			}
+		}
+		return profile;
+	}
+	
+	private void step() throws IOException {
+		if(!hasNext()) {
+			throw new NoSuchElementException("The profile has " + length + " time steps");
+		}
+		// Every value takes at most ten bytes, so only a time step near the end needs checking
+		if(buffer.remaining() < OffHeapProfile.COLUMNS * 10 && !complete()) {
+			throw new IOException(name + " is truncated");
+		}
+		index++;
+	}
+	
+	/**
+	 * Checks if the six values of the next time step are all in the buffer.
+	 * 
+	 * @return if the time step is complete
+	 */
+	private boolean complete() {
+		int i = buffer.position();
+		for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+			for(int k = 0;;k++) {
+				if(i >= buffer.limit()) {
+					return false;
+				}
+				if(buffer.get(i++) >= 0 || k == 9) {
+					break;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Decodes one value of the current time step.
+	 * 
+	 * @param column the column of the value
+	 * @return the value
+	 */
+	private double value(int column) {
+		long zigZag = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			zigZag |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while(b < 0 && shift < 70);
+		
+		long change = (zigZag >>> 1) ^ -(zigZag & 1);
+		long delta = previousDelta[column] + change;
+		long quantized = previous[column] + delta;
+		previousDelta[column] = delta;
+		previous[column] = quantized;
+		return quantized / scales[column];
+	}
+}
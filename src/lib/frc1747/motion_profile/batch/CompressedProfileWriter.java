@@ -0,0 +1,295 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+
+/**
+ * Saves a profile in a compressed binary format, one time step at a time.
+ * 
+ * Each column is rounded to a multiple of its resolution, and only the change from the change at the
+ * previous time step is saved, as a zig-zag varint.
+ * Profiles are smooth, so this is usually a single byte per value instead of the eight of a double.
+ * Time steps are written as they are given, so a profile can be saved straight from a
+ * {@link lib.frc1747.motion_profile.generator._1d.TrajectoryCursor} without ever holding the whole profile.
+ * The profile is written to a temporary file, which only replaces the file when the profile is finished,
+ * so a profile that fails partway never leaves a shorter profile behind.
+ * Profiles are read back with a {@link CompressedProfileReader}.
+ * <br>
+ * The header is, with every value little endian:<br>
+ * [magic, version, length, columns, dt, v_max, a_max, j_max, w_width, i_sample_length, i_sample_count, 0,
+ * resolution0, resolution1, ..., resolution5]<br>
+ * where the magic, version, length, columns, i_sample_count and the zero are ints, and the rest are doubles,
+ * the same as the header of a {@link ProfileFile} followed by the resolutions.
+ * The time steps follow, with the six values of each time step together.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class CompressedProfileWriter implements Closeable {
+	/**
+	 * The extension used for compressed profiles
+	 */
+	public static final String EXTENSION = ".mpz";
+	/**
+	 * The first four bytes of every compressed profile, "MPRZ"
+	 */
+	public static final int MAGIC = 'M' | 'P' << 8 | 'R' << 16 | 'Z' << 24;
+	/**
+	 * The version of the format written, which is increased whenever the format changes
+	 */
+	public static final int VERSION = 2;
+	/**
+	 * The size of the header before the time steps
+	 */
+	public static final int HEADER_BYTES = 16 + ProfileFile.PARAMETER_BYTES + OffHeapProfile.COLUMNS * 8;
+	/**
+	 * The resolution of every column by default, the same as the text format
+	 */
+	public static final double DEFAULT_RESOLUTION = 1E-4;
+	
+	// The longest a time step can be, with ten bytes per value
+	private static final int MAX_STEP_BYTES = OffHeapProfile.COLUMNS * 10;
+	
+	private File file;
+	private File temporary;
+	private FileChannel channel;
+	private boolean finished;
+	private ByteBuffer buffer;
+	private double[] scales;
+	private long[] previous;
+	private long[] previousDelta;
+	private int length;
+	
+	/**
+	 * Creates a CompressedProfileWriter that saves every column to {@link #DEFAULT_RESOLUTION}.
+	 * 
+	 * @param file the file to write
+	 * @param parameters the parameters the profile is generated with, whose profile is not used
+	 * @throws IOException if the temporary file could not be created
+	 */
+	public CompressedProfileWriter(File file, ProfileFile parameters) throws IOException {
+		this(file, parameters, defaultResolutions());
+	}
+	
+	/**
+	 * Creates a CompressedProfileWriter.
+	 * 
+	 * @param file the file to write
+	 * @param parameters the parameters the profile is generated with, whose profile is not used
+	 * @param resolutions the resolution of each column, in the order of {@link OffHeapProfile}
+	 * @throws IOException if the temporary file could not be created
+	 */
+	public CompressedProfileWriter(File file, ProfileFile parameters, double[] resolutions) throws IOException {
+		if(resolutions.length != OffHeapProfile.COLUMNS) {
+			throw new IllegalArgumentException("There must be a resolution for each of the "
+					+ OffHeapProfile.COLUMNS + " columns");
+		}
+		scales = new double[OffHeapProfile.COLUMNS];
+		for(int i = 0;i < OffHeapProfile.COLUMNS;i++) {
+			if(!(resolutions[i] > 0) || Double.isInfinite(resolutions[i])) {
+				throw new IllegalArgumentException("Resolutions must be positive");
+			}
+			scales[i] = scale(resolutions[i]);
+		}
+		previous = new long[OffHeapProfile.COLUMNS];
+		previousDelta = new long[OffHeapProfile.COLUMNS];
+		
+		buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		// The length is filled in when the writer is closed
+		buffer.putInt(0);
+		buffer.putInt(OffHeapProfile.COLUMNS);
+		ProfileFile.putParameters(buffer, parameters);
+		for(int i = 0;i < OffHeapProfile.COLUMNS;i++) {
+			buffer.putDouble(resolutions[i]);
+		}
+		
+		this.file = file;
+		temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(),
+				file.getName(), ".tmp").toFile();
+		try {
+			channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE);
+		}
+		catch (IOException ex) {
+			temporary.delete();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Gets a resolution of {@link #DEFAULT_RESOLUTION} for every column.
+	 * 
+	 * @return the resolutions
+	 */
+	public static double[] defaultResolutions() {
+		double[] resolutions = new double[OffHeapProfile.COLUMNS];
+		Arrays.fill(resolutions, DEFAULT_RESOLUTION);
+		return resolutions;
+	}
+	
+	/**
+	 * Finds the number of steps per unit for a resolution.
+	 * Resolutions like 1E-5 are not exact, so the steps are rounded to a whole number when they are close to one.
+	 * 
+	 * @param resolution the resolution of a column
+	 * @return the number of steps per unit
+	 */
+	static double scale(double resolution) {
+		double scale = 1 / resolution;
+		double rounded = Math.rint(scale);
+		return Math.abs(scale - rounded) <= 1E-9 * rounded ? rounded : scale;
+	}
+	
+	/**
+	 * Saves a whole profile.
+	 * 
+	 * @param file the file to write
+	 * @param profileFile the profile and the parameters it was generated with
+	 * @param resolutions the resolution of each column, in the order of {@link OffHeapProfile}
+	 * @throws IllegalArgumentException if a value is not finite or too large for its resolution
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file, ProfileFile profileFile, double[] resolutions) throws IOException {
+		OffHeapProfile profile = profileFile.profile;
+		try(CompressedProfileWriter writer = new CompressedProfileWriter(file, profileFile, resolutions)) {
+			for(int i = 0;i < profile.getLength();i++) {
+				for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+					writer.value(j, profile.get(j, i));
+				}
+				writer.step();
+			}
+			writer.finish();
+		}
+	}
+	
+	/**
+	 * Adds the next time step of the translational and rotational profiles.
+	 * 
+	 * @param timePoint the translational time step<br>
+	 * The format is [x, v, a]
+	 * @param angularTimePoint the rotational time step<br>
+	 * The format is [x, v, a]
+	 * @throws IllegalArgumentException if a value is not finite or too large for its resolution
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(double[] timePoint, double[] angularTimePoint) throws IOException {
+		value(OffHeapProfile.TRANSLATION_POSITION, timePoint[0]);
+		value(OffHeapProfile.TRANSLATION_VELOCITY, timePoint[1]);
+		value(OffHeapProfile.TRANSLATION_ACCELERATION, timePoint[2]);
+		value(OffHeapProfile.ROTATION_POSITION, angularTimePoint[0]);
+		value(OffHeapProfile.ROTATION_VELOCITY, angularTimePoint[1]);
+		value(OffHeapProfile.ROTATION_ACCELERATION, angularTimePoint[2]);
+		step();
+	}
+	
+	/**
+	 * Gets the number of time steps written so far.
+	 * 
+	 * @return the number of time steps
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Writes the last time steps and the length, and replaces the file with the finished profile.
+	 * 
+	 * @throws IOException if the file could not be written
+	 */
+	public void finish() throws IOException {
+		if(channel == null) {
+			throw new IllegalStateException("The writer is already closed");
+		}
+		flush();
+		ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, length);
+		while(header.hasRemaining()) {
+			channel.write(header, 8 + header.position());
+		}
+		finished = true;
+		close();
+	}
+	
+	/**
+	 * Closes the temporary file, and deletes it if the profile was not finished.
+	 * The file being written is only changed by {@link #finish()}.
+	 * 
+	 * @throws IOException if the finished profile could not replace the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if(channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+			if(finished) {
+				Files.move(temporary.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+		finally {
+			channel = null;
+			// Nothing is left to delete once the profile has been moved into place
+			temporary.delete();
+		}
+	}
+	
+	/**
+	 * Writes one value of the current time step.
+	 * 
+	 * @param column the column of the value
+	 * @param value the value to write
+	 */
+	private void value(int column, double value) {
+		// Math.round would quietly turn NaN into zero and clamp anything else that does not fit in a long
+		double scaled = value * scales[column];
+		if(!(Math.abs(scaled) < Long.MAX_VALUE)) {
+			throw new IllegalArgumentException("Column " + column + " is " + value
+					+ ", which cannot be saved at its resolution");
+		}
+		
+		// Differences wrap around the same way when they are added back, so nothing is lost even if they overflow
+		long quantized = Math.round(scaled);
+		long delta = quantized - previous[column];
+		long change = delta - previousDelta[column];
+		previous[column] = quantized;
+		previousDelta[column] = delta;
+		
+		long zigZag = (change << 1) ^ (change >> 63);
+		while((zigZag & ~0x7FL) != 0) {
+			buffer.put((byte)(zigZag | 0x80));
+			zigZag >>>= 7;
+		}
+		buffer.put((byte)zigZag);
+	}
+	
+	/**
+	 * Finishes the current time step, making sure the next one fits in the buffer.
+	 */
+	private void step() throws IOException {
+		length++;
+		if(buffer.remaining() < MAX_STEP_BYTES) {
+			flush();
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
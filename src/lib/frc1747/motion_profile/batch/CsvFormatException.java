@@ -0,0 +1,48 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a value in a CSV file cannot be read, with where in the file it is.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class CsvFormatException extends IOException {
+	private static final long serialVersionUID = 3296045817324116501L;
+	
+	private int row;
+	private int column;
+	
+	/**
+	 * Creates a CsvFormatException.
+	 * 
+	 * @param name the name of the file
+	 * @param row the line of the value, starting at 1
+	 * @param column the column of the value, starting at 1
+	 * @param message what is wrong with the value
+	 */
+	public CsvFormatException(String name, int row, int column, String message) {
+		super(name + ", row " + row + ", column " + column + ": " + message);
+		this.row = row;
+		this.column = column;
+	}
+	
+	/**
+	 * Gets the line of the value that could not be read.
+	 * 
+	 * @return the line, starting at 1
+	 */
+	public int getRow() {
+		return row;
+	}
+	
+	/**
+	 * Gets the column of the value that could not be read.
+	 * 
+	 * @return the column, starting at 1
+	 */
+	public int getColumn() {
+		return column;
+	}
+}
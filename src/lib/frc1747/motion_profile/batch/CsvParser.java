@@ -0,0 +1,342 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the comma separated files written by the spline and profile generators,
+ * parsing numbers straight from the bytes of the file.
+ * 
+ * The file is read one row at a time with {@link #nextRow()}, then one field at a time.
+ * Fields are trimmed like {@link String#trim()}, and empty lines are skipped.
+ * Plain decimal numbers are parsed without creating any objects, and exactly match
+ * {@link Double#parseDouble(String)}, which is still used for anything else.
+ * Values that cannot be read throw a {@link CsvFormatException} with their row and column.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class CsvParser {
+	// Every power of ten that is exactly a double
+	private static final double[] POWERS_OF_TEN = {
+			1E0, 1E1, 1E2, 1E3, 1E4, 1E5, 1E6, 1E7, 1E8, 1E9, 1E10,
+			1E11, 1E12, 1E13, 1E14, 1E15, 1E16, 1E17, 1E18, 1E19, 1E20, 1E21, 1E22,
+	};
+	// The largest mantissa that is exactly a double
+	private static final long MAX_EXACT = 1L << 53;
+	// Heap buffers reused between files read on the same thread
+	private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1 << 12));
+	
+	private ByteBuffer buffer;
+	private String name;
+	private int limit;
+	
+	// The current row, from its start to its line ending
+	private int row;
+	private int rowStart;
+	private int rowEnd;
+	private int nextRowStart;
+	private int position;
+	
+	// The current field, trimmed
+	private int column;
+	private int fieldStart;
+	private int fieldEnd;
+	
+	/**
+	 * Creates a CsvParser for the bytes of a file.
+	 * 
+	 * @param buffer the bytes of the file, from its position to its limit
+	 * @param name the name of the file, used in error messages
+	 */
+	public CsvParser(ByteBuffer buffer, String name) {
+		this.buffer = buffer.slice();
+		this.name = name;
+		limit = this.buffer.limit();
+		row = 0;
+		rowStart = 0;
+		rowEnd = -1;
+		nextRowStart = 0;
+		position = 0;
+	}
+	
+	/**
+	 * Reads a file into a heap buffer and creates a CsvParser for it.
+	 * The buffer is reused by the next file read on the same thread, so the parser must be finished with first.
+	 * Unlike {@link #map(File)}, nothing is left open, so the file can be replaced as soon as this returns.
+	 * 
+	 * @param file the file to read
+	 * @return the parser, before the first row
+	 * @throws IOException if the file could not be read
+	 */
+	public static CsvParser read(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to read");
+			}
+			ByteBuffer buffer = BUFFERS.get();
+			if(buffer.capacity() < size) {
+				buffer = ByteBuffer.allocate((int)Math.min(Integer.MAX_VALUE, Math.max(size, buffer.capacity() * 2L)));
+				BUFFERS.set(buffer);
+			}
+			buffer.clear();
+			buffer.limit((int)size);
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+			buffer.flip();
+			return new CsvParser(buffer, file.toString());
+		}
+	}
+	
+	/**
+	 * Maps a file into memory and creates a CsvParser for it.
+	 * The file stays mapped until the parser is garbage collected, and on some systems cannot be replaced until then,
+	 * so {@link #read(File)} is better for small files.
+	 * 
+	 * @param file the file to read
+	 * @return the parser, before the first row
+	 * @throws IOException if the file could not be read
+	 */
+	public static CsvParser map(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new CsvParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+		}
+	}
+	
+	/**
+	 * Moves to the next row that is not empty.
+	 * 
+	 * @return if there is another row
+	 */
+	public boolean nextRow() {
+		while(nextRowStart < limit) {
+			int start = nextRowStart;
+			int end = start;
+			while(end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+				end++;
+			}
+			
+			// Lines end with \n, \r or \r\n, like BufferedReader
+			nextRowStart = end + 1;
+			if(end < limit && buffer.get(end) == '\r' && nextRowStart < limit && buffer.get(nextRowStart) == '\n') {
+				nextRowStart++;
+			}
+			
+			row++;
+			rowStart = start;
+			rowEnd = end;
+			position = start;
+			column = 0;
+			if(end > start) {
+				return true;
+			}
+		}
+		position = rowEnd + 1;
+		return false;
+	}
+	
+	/**
+	 * Gets the line number of the current row.
+	 * 
+	 * @return the line number, starting at 1
+	 */
+	public int getRow() {
+		return row;
+	}
+	
+	/**
+	 * Gets the number of fields in the current row.
+	 * 
+	 * @return the number of fields, including ones that are already read
+	 */
+	public int getColumnCount() {
+		int count = 1;
+		for(int i = rowStart;i < rowEnd;i++) {
+			if(buffer.get(i) == ',') count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Checks if there are fields left in the current row.
+	 * 
+	 * @return if there are any fields left
+	 */
+	public boolean hasField() {
+		return position <= rowEnd;
+	}
+	
+	/**
+	 * Checks if the next field is some text, without moving past it.
+	 * 
+	 * @param text the text to check for
+	 * @return if the next field is the text
+	 */
+	public boolean peekEquals(String text) {
+		if(!hasField()) {
+			return false;
+		}
+		int saved = position;
+		int savedColumn = column;
+		field();
+		position = saved;
+		column = savedColumn;
+		if(fieldEnd - fieldStart != text.length()) {
+			return false;
+		}
+		for(int i = 0;i < text.length();i++) {
+			if(buffer.get(fieldStart + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Moves past the next field without reading it.
+	 * 
+	 * @throws CsvFormatException if there are no fields left in the row
+	 */
+	public void skipField() throws CsvFormatException {
+		nextField();
+	}
+	
+	/**
+	 * Reads the next field as text.
+	 * 
+	 * @return the field
+	 * @throws CsvFormatException if there are no fields left in the row
+	 */
+	public String nextString() throws CsvFormatException {
+		nextField();
+		return text();
+	}
+	
+	/**
+	 * Reads the next field as a double.
+	 * 
+	 * @return the value of the field
+	 * @throws CsvFormatException if there are no fields left in the row or the field is not a number
+	 */
+	public double nextDouble() throws CsvFormatException {
+		nextField();
+		int i = fieldStart;
+		boolean negative = false;
+		if(i < fieldEnd && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		
+		// Collect the digits into an integer, remembering where the decimal point was
+		long mantissa = 0;
+		int scale = 0;
+		int digits = 0;
+		boolean point = false;
+		for(;i < fieldEnd;i++) {
+			byte b = buffer.get(i);
+			if(b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if(point) scale++;
+				if(mantissa >= MAX_EXACT) break;
+			}
+			else if(b == '.' && !point) {
+				point = true;
+			}
+			else {
+				break;
+			}
+		}
+		
+		// Both the mantissa and the power of ten are exact, so one division rounds correctly
+		if(i == fieldEnd && digits > 0 && mantissa < MAX_EXACT && scale < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+		try {
+			return Double.parseDouble(text());
+		}
+		catch (NumberFormatException ex) {
+			throw error("\"" + text() + "\" is not a number");
+		}
+	}
+	
+	/**
+	 * Reads the next field as an int.
+	 * 
+	 * @return the value of the field
+	 * @throws CsvFormatException if there are no fields left in the row or the field is not an integer
+	 */
+	public int nextInt() throws CsvFormatException {
+		nextField();
+		int i = fieldStart;
+		boolean negative = false;
+		if(i < fieldEnd && buffer.get(i) == '-') {
+			negative = true;
+			i++;
+		}
+		long value = 0;
+		for(;i < fieldEnd && value <= Integer.MAX_VALUE;i++) {
+			byte b = buffer.get(i);
+			if(b < '0' || b > '9') break;
+			value = value * 10 + (b - '0');
+		}
+		if(i == fieldEnd && i > fieldStart + (negative ? 1 : 0) && value <= Integer.MAX_VALUE) {
+			return (int)(negative ? -value : value);
+		}
+		try {
+			return Integer.parseInt(text());
+		}
+		catch (NumberFormatException ex) {
+			throw error("\"" + text() + "\" is not an integer");
+		}
+	}
+	
+	/**
+	 * Creates an exception for the current field.
+	 * 
+	 * @param message what is wrong with the field
+	 * @return the exception
+	 */
+	public CsvFormatException error(String message) {
+		return new CsvFormatException(name, row, column, message);
+	}
+	
+	private void nextField() throws CsvFormatException {
+		if(!hasField()) {
+			column++;
+			throw error("missing value");
+		}
+		field();
+	}
+	
+	/**
+	 * Finds the bounds of the next field and moves past it.
+	 */
+	private void field() {
+		column++;
+		int end = position;
+		while(end < rowEnd && buffer.get(end) != ',') {
+			end++;
+		}
+		int start = position;
+		position = end + 1;
+		
+		while(start < end && (buffer.get(start) & 0xFF) <= ' ') start++;
+		while(end > start && (buffer.get(end-1) & 0xFF) <= ' ') end--;
+		fieldStart = start;
+		fieldEnd = end;
+	}
+	
+	private String text() {
+		byte[] bytes = new byte[fieldEnd - fieldStart];
+		for(int i = 0;i < bytes.length;i++) {
+			bytes[i] = buffer.get(fieldStart + i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
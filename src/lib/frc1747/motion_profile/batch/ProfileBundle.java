@@ -0,0 +1,285 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Many named binary profiles saved together in one file, so they can all be opened at once.
+ * 
+ * The file starts with a hash table of the names, so a profile is found without reading the others,
+ * and every profile is used straight from the mapped file like {@link ProfileFile#map(File)}.
+ * Names are hashed with {@link String#hashCode()}, which is the same on every JVM.
+ * <br>
+ * The header is, with every value little endian:<br>
+ * [magic, version, count, slots]<br>
+ * where every value is an int. The hash table follows with a power of two number of slots, each<br>
+ * [hash, name length, offset, size]<br>
+ * where the hash and name length are ints, and the offset and size are longs.
+ * Empty slots have an offset of zero.
+ * Each offset is the start of the name, as UTF-8, padded to a multiple of eight bytes
+ * and followed by a binary profile of the given size.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileBundle {
+	/**
+	 * The extension used for profile bundles
+	 */
+	public static final String EXTENSION = ".mpb";
+	/**
+	 * The first four bytes of every profile bundle, "MPRB"
+	 */
+	public static final int MAGIC = 'M' | 'P' << 8 | 'R' << 16 | 'B' << 24;
+	/**
+	 * The version of the format written, which is increased whenever the format changes
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * The size of the header before the hash table
+	 */
+	public static final int HEADER_BYTES = 16;
+	/**
+	 * The size of each slot in the hash table
+	 */
+	public static final int SLOT_BYTES = 24;
+	
+	private ByteBuffer buffer;
+	private String name;
+	private int count;
+	private int mask;
+	
+	/**
+	 * Creates a ProfileBundle from the bytes of a bundle, without copying them.
+	 * 
+	 * @param buffer the buffer containing the bundle, starting at its position
+	 * @param name the name of the bundle, used in error messages
+	 * @throws IOException if the buffer does not contain a profile bundle
+	 */
+	public ProfileBundle(ByteBuffer buffer, String name) throws IOException {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.name = name;
+		if(this.buffer.remaining() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC) {
+			throw new IOException(name + " is not a profile bundle");
+		}
+		int version = this.buffer.getInt(4);
+		if(version != VERSION) {
+			throw new IOException(name + " is version " + version + ", only version " + VERSION + " can be read");
+		}
+		count = this.buffer.getInt(8);
+		int slots = this.buffer.getInt(12);
+		if(slots <= 0 || Integer.bitCount(slots) != 1 || count < 0 || count >= slots
+				|| this.buffer.remaining() < HEADER_BYTES + (long)slots * SLOT_BYTES) {
+			throw new IOException(name + " has a damaged index");
+		}
+		mask = slots - 1;
+	}
+	
+	/**
+	 * Maps a profile bundle into memory.
+	 * The profiles read straight from the file, which stays mapped until the bundle and all of its profiles
+	 * are garbage collected.
+	 * 
+	 * @param file the file to map
+	 * @return the bundle
+	 * @throws IOException if the file could not be read or is not a profile bundle
+	 */
+	public static ProfileBundle map(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to map");
+			}
+			return new ProfileBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+		}
+	}
+	
+	/**
+	 * Gets the number of profiles in the bundle.
+	 * 
+	 * @return the number of profiles
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Gets the names of the profiles in the bundle.
+	 * 
+	 * @return the names, in the order they were saved
+	 */
+	public List<String> getNames() {
+		// Pack each offset with its slot, then sort them into the order they were saved
+		long[] offsets = new long[count];
+		int found = 0;
+		for(int i = 0;i <= mask;i++) {
+			int slot = HEADER_BYTES + i * SLOT_BYTES;
+			long offset = buffer.getLong(slot + 8);
+			if(offset != 0 && found < count) {
+				offsets[found++] = offset << 31 | i;
+			}
+		}
+		Arrays.sort(offsets, 0, found);
+		
+		List<String> names = new ArrayList<>(found);
+		for(int i = 0;i < found;i++) {
+			int slot = HEADER_BYTES + (int)(offsets[i] & Integer.MAX_VALUE) * SLOT_BYTES;
+			byte[] bytes = new byte[buffer.getInt(slot + 4)];
+			int offset = (int)buffer.getLong(slot + 8);
+			for(int j = 0;j < bytes.length;j++) {
+				bytes[j] = buffer.get(offset + j);
+			}
+			names.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+		return names;
+	}
+	
+	/**
+	 * Checks if the bundle has a profile.
+	 * 
+	 * @param name the name of the profile
+	 * @return if the profile is in the bundle
+	 */
+	public boolean contains(String name) {
+		return find(name) >= 0;
+	}
+	
+	/**
+	 * Gets a profile from the bundle, without copying it.
+	 * 
+	 * @param name the name of the profile
+	 * @return the profile and the parameters it was generated with, or null if it is not in the bundle
+	 * @throws IOException if the profile is damaged
+	 */
+	public ProfileFile get(String name) throws IOException {
+		int slot = find(name);
+		if(slot < 0) {
+			return null;
+		}
+		int nameLength = buffer.getInt(slot + 4);
+		long offset = buffer.getLong(slot + 8) + padded(nameLength);
+		long size = buffer.getLong(slot + 16);
+		if(offset + size > buffer.limit()) {
+			throw new IOException(this.name + " is truncated");
+		}
+		
+		ByteBuffer profile = buffer.duplicate();
+		profile.position((int)offset);
+		profile.limit((int)(offset + size));
+		return ProfileFile.read(profile, this.name + ", " + name);
+	}
+	
+	/**
+	 * Finds the slot holding a name.
+	 * 
+	 * @param name the name of the profile
+	 * @return the position of the slot, or -1 if the name is not in the bundle
+	 */
+	private int find(String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int hash = name.hashCode();
+		int i = index(hash, mask);
+		for(int probe = 0;probe <= mask;probe++) {
+			int slot = HEADER_BYTES + i * SLOT_BYTES;
+			long offset = buffer.getLong(slot + 8);
+			if(offset == 0) {
+				return -1;
+			}
+			if(buffer.getInt(slot) == hash && buffer.getInt(slot + 4) == bytes.length && matches(offset, bytes)) {
+				return slot;
+			}
+			i = (i+1) & mask;
+		}
+		return -1;
+	}
+	
+	private boolean matches(long offset, byte[] bytes) {
+		if(offset + bytes.length > buffer.limit()) {
+			return false;
+		}
+		for(int i = 0;i < bytes.length;i++) {
+			if(buffer.get((int)offset + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Saves profiles together as a profile bundle.
+	 * 
+	 * @param file the file to write
+	 * @param profiles the profiles and the parameters they were generated with, by name
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file, Map<String, ProfileFile> profiles) throws IOException {
+		// At most half of the slots are used, so probes stay short
+		int count = profiles.size();
+		int slots = Integer.highestOneBit(Math.max(1, count * 2 - 1)) << 1;
+		int mask = slots - 1;
+		ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + slots * SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		index.putInt(0, MAGIC);
+		index.putInt(4, VERSION);
+		index.putInt(8, count);
+		index.putInt(12, slots);
+		
+		// The profiles are laid out one after another after the hash table
+		List<byte[]> names = new ArrayList<>(count);
+		long offset = index.capacity();
+		for(Map.Entry<String, ProfileFile> entry : profiles.entrySet()) {
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			long size = ProfileFile.size(entry.getValue());
+			int i = index(entry.getKey().hashCode(), mask);
+			while(index.getLong(HEADER_BYTES + i * SLOT_BYTES + 8) != 0) {
+				i = (i+1) & mask;
+			}
+			int slot = HEADER_BYTES + i * SLOT_BYTES;
+			index.putInt(slot, entry.getKey().hashCode());
+			index.putInt(slot + 4, name.length);
+			index.putLong(slot + 8, offset);
+			index.putLong(slot + 16, size);
+			names.add(name);
+			offset += padded(name.length) + size;
+		}
+		
+		// Write everything with as few calls as possible
+		ByteBuffer[] buffers = new ByteBuffer[1 + count * 4];
+		buffers[0] = index;
+		int i = 1;
+		for(ProfileFile profileFile : profiles.values()) {
+			byte[] name = names.get(i / 4);
+			buffers[i++] = ByteBuffer.wrap(name);
+			buffers[i++] = ByteBuffer.allocate(padded(name.length) - name.length);
+			buffers[i++] = ProfileFile.header(profileFile);
+			buffers[i++] = ProfileFile.columns(profileFile);
+		}
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for(long written = 0;written < offset;) {
+				written += channel.write(buffers);
+			}
+		}
+	}
+	
+	/**
+	 * Finds the first slot to look in for a hash, mixing the high bits into the low ones.
+	 */
+	private static int index(int hash, int mask) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+	
+	/**
+	 * Rounds a length up to a multiple of eight bytes, so the profile after it stays aligned.
+	 */
+	private static int padded(int length) {
+		return (length + 7) & ~7;
+	}
+}
@@ -0,0 +1,264 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+/**
+ * An on-disk cache of generated profiles, keyed by the waypoints and parameters they were generated from.
+ * 
+ * Each profile is stored in its own file named by a hash of everything that affects generation,
+ * so an unchanged waypoint file is never generated twice, even across runs.
+ * When the cache grows past its size limit, the least recently used profiles are deleted.
+ * {@link #VERSION} must be changed whenever generation changes, so old profiles are not reused.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileCache {
+	/**
+	 * Included in every key, so changing it invalidates every cached profile
+	 */
+	public static final String VERSION = "motion_profile 4";
+	
+	private static final String EXTENSION = ".profile";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	// Profiles are written all at once, so a temporary file this old was left behind by a run that was stopped
+	private static final long STALE_TEMPORARY_MILLIS = 60 * 60 * 1000;
+	private static final int POINT_BYTES = OffHeapProfile.COLUMNS * 8;
+	
+	private File directory;
+	private long maxBytes;
+	private long bytes;
+	// Key to file size, from least to most recently used
+	private LinkedHashMap<String, Long> entries;
+	
+	private AtomicLong hits;
+	private AtomicLong misses;
+	
+	/**
+	 * Opens a cache in a directory, creating the directory if needed.
+	 * Profiles already in the directory are kept, oldest first in line for eviction,
+	 * and partly written profiles left behind by a run that was stopped are deleted once they are an hour old,
+	 * so profiles still being written by another generator sharing the directory are left alone.
+	 * 
+	 * @param directory the directory to store profiles in
+	 * @param maxBytes the most space the cached profiles may take up
+	 * @throws IOException if the directory could not be created
+	 */
+	public ProfileCache(File directory, long maxBytes) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory.toPath());
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+		
+		long stale = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+		for(File file : directory.listFiles((parent, name) -> name.endsWith(TEMPORARY_EXTENSION))) {
+			if(file.lastModified() < stale) {
+				file.delete();
+			}
+		}
+		File[] files = directory.listFiles((parent, name) -> name.endsWith(EXTENSION));
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for(File file : files) {
+			String name = file.getName();
+			entries.put(name.substring(0, name.length() - EXTENSION.length()), file.length());
+			bytes += file.length();
+		}
+		evict();
+	}
+	
+	/**
+	 * Finds the key for the profile that would be generated from a waypoint file.
+	 * 
+	 * @param waypointFile the waypoints and parameters
+	 * @return the key, as a hexadecimal string
+	 */
+	public static String key(WaypointFile waypointFile) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		digest.update(VERSION.getBytes());
+		update(digest, buffer, waypointFile.v_max);
+		update(digest, buffer, waypointFile.a_max);
+		update(digest, buffer, waypointFile.j_max);
+		update(digest, buffer, waypointFile.w_width);
+		update(digest, buffer, waypointFile.dt);
+		update(digest, buffer, waypointFile.i_sample_count);
+		update(digest, buffer, waypointFile.i_sample_length);
+		update(digest, buffer, waypointFile.waypoints.size());
+		for(Waypoint waypoint : waypointFile.waypoints) {
+			update(digest, buffer, waypoint.x);
+			update(digest, buffer, waypoint.y);
+			update(digest, buffer, waypoint.v_t);
+			update(digest, buffer, waypoint.v_m);
+			update(digest, buffer, waypoint.a_t);
+			update(digest, buffer, waypoint.a_m);
+			update(digest, buffer, waypoint.m_sv);
+			update(digest, buffer, waypoint.m_sa);
+			update(digest, buffer, waypoint.m_av);
+			update(digest, buffer, waypoint.m_aa);
+			digest.update((byte)(waypoint.reverse ? 1 : 0));
+		}
+		
+		StringBuilder key = new StringBuilder();
+		for(byte b : digest.digest()) {
+			key.append(String.format("%02x", b));
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Gets a cached profile.
+	 * 
+	 * @param key the key of the profile
+	 * @return the profile, or null if it is not cached
+	 */
+	public OffHeapProfile get(String key) {
+		synchronized(this) {
+			if(entries.get(key) == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+		}
+		
+		File file = file(key);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size % POINT_BYTES != 0 || size > Integer.MAX_VALUE) {
+				throw new IOException("Corrupt cache entry " + file);
+			}
+			ByteBuffer buffer = ByteBuffer.allocateDirect((int)size);
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer) < 0) {
+					throw new IOException("Truncated cache entry " + file);
+				}
+			}
+			buffer.flip();
+			file.setLastModified(System.currentTimeMillis());
+			hits.incrementAndGet();
+			return new OffHeapProfile(buffer, (int)(size / POINT_BYTES));
+		}
+		catch (IOException ex) {
+			// The entry was evicted or damaged since it was looked up, so treat it as missing
+			remove(key);
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+	
+	/**
+	 * Adds a profile to the cache, evicting the least recently used profiles if the cache is full.
+	 * 
+	 * @param key the key of the profile
+	 * @param profile the profile
+	 * @throws IOException if the profile could not be written
+	 */
+	public void put(String key, OffHeapProfile profile) throws IOException {
+		// Write to a temporary file first so other readers never see a partial profile
+		File file = file(key);
+		File temporary = File.createTempFile(key, TEMPORARY_EXTENSION, directory);
+		try {
+			try(FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = profile.getBuffer();
+				buffer.limit(profile.getLength() * POINT_BYTES);
+				while(buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temporary.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | RuntimeException ex) {
+			temporary.delete();
+			throw ex;
+		}
+		
+		synchronized(this) {
+			Long previous = entries.put(key, file.length());
+			if(previous != null) {
+				bytes -= previous;
+			}
+			bytes += file.length();
+			evict();
+		}
+	}
+	
+	/**
+	 * Gets the number of lookups that found a cached profile.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Gets the number of lookups that did not find a cached profile.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Gets the space taken up by the cached profiles.
+	 * 
+	 * @return the size of the cached profiles in bytes
+	 */
+	public synchronized long getSize() {
+		return bytes;
+	}
+	
+	private synchronized void remove(String key) {
+		Long size = entries.remove(key);
+		if(size != null) {
+			bytes -= size;
+			file(key).delete();
+		}
+	}
+	
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while(bytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			bytes -= entry.getValue();
+			file(entry.getKey()).delete();
+			iterator.remove();
+		}
+	}
+	
+	private File file(String key) {
+		return new File(directory, key + EXTENSION);
+	}
+	
+	private static void update(MessageDigest digest, ByteBuffer buffer, double value) {
+		buffer.clear();
+		buffer.putDouble(value);
+		digest.update(buffer.array());
+	}
+}
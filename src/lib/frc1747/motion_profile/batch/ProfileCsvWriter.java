@@ -0,0 +1,209 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+
+/**
+ * Saves profiles in the text format used by the profile generator, without formatting each value as a String.
+ * 
+ * The output is byte for byte the same as writing the header with {@code "%d, %d\n"}
+ * and each row with {@code "%.4f, %.4f, %.4f, %.4f, %.4f, %.4f\n"}.
+ * Like {@link java.util.Formatter}, values are rounded half up from their shortest decimal representation,
+ * and negative values that round to zero keep their sign.
+ * Values are written into a reusable buffer that is flushed to the file when it fills up,
+ * so a writer should be reused for every file written by the same thread.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileCsvWriter {
+	// Values below this are rounded with doubles, the rest with BigDecimal
+	private static final double FAST_LIMIT = 1E7;
+	// The longest a value can be when written with doubles, with its separator
+	private static final int FAST_BYTES = 16;
+	
+	private ByteBuffer buffer;
+	private byte[] digits;
+	private boolean localized;
+	private FileChannel channel;
+	
+	/**
+	 * Creates a ProfileCsvWriter with a 64 KB buffer.
+	 */
+	public ProfileCsvWriter() {
+		buffer = ByteBuffer.allocateDirect(1 << 16);
+		digits = new byte[FAST_BYTES];
+		
+		// The formatter uses the digits of the default locale, so fall back to it when they are not plain
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		localized = symbols.getZeroDigit() != '0' || symbols.getDecimalSeparator() != '.'
+				|| symbols.getMinusSign() != '-';
+	}
+	
+	/**
+	 * Saves a profile.
+	 * 
+	 * @param file the file to write
+	 * @param profile the translational and rotational profile
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file, OffHeapProfile profile) throws IOException {
+		open(file);
+		try {
+			header(profile.getLength());
+			for(int i = 0;i < profile.getLength();i++) {
+				for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+					value(profile.get(j, i), j == OffHeapProfile.COLUMNS-1);
+				}
+			}
+			flush();
+		}
+		finally {
+			close();
+		}
+	}
+	
+	/**
+	 * Saves a profile.
+	 * 
+	 * @param file the file to write
+	 * @param timePoints the translation profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param angularTimePoints the rotation profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param translationScale the scale to apply to the translation profile (-1 to reverse it)
+	 * @param rotationScale the scale to apply to the rotation profile (-1 to reverse it)
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(File file, double[][] timePoints, double[][] angularTimePoints,
+			double translationScale, double rotationScale) throws IOException {
+		open(file);
+		try {
+			header(timePoints.length);
+			for(int i = 0;i < timePoints.length;i++) {
+				value(translationScale * timePoints[i][0], false);
+				value(translationScale * timePoints[i][1], false);
+				value(translationScale * timePoints[i][2], false);
+				value(rotationScale * angularTimePoints[i][0], false);
+				value(rotationScale * angularTimePoints[i][1], false);
+				value(rotationScale * angularTimePoints[i][2], true);
+			}
+			flush();
+		}
+		finally {
+			close();
+		}
+	}
+	
+	private void open(File file) throws IOException {
+		buffer.clear();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+	
+	private void close() throws IOException {
+		FileChannel channel = this.channel;
+		this.channel = null;
+		channel.close();
+	}
+	
+	private void header(int length) throws IOException {
+		text(String.format("%d, %d\n", 2, length));
+	}
+	
+	/**
+	 * Writes a value rounded to four decimal places, followed by a separator or the end of the line.
+	 * 
+	 * @param value the value to write
+	 * @param last if this is the last value of the row
+	 */
+	private void value(double value, boolean last) throws IOException {
+		double magnitude = Math.abs(value);
+		if(localized || !(magnitude < FAST_LIMIT)) {
+			slowValue(value, last);
+			return;
+		}
+		
+		// Values near halfway may round differently from their shortest decimal representation
+		double scaled = magnitude * 10000;
+		double fraction = scaled - Math.floor(scaled);
+		if(Math.abs(fraction - 0.5) < 1E-4) {
+			slowValue(value, last);
+			return;
+		}
+		
+		// Write the digits backwards, starting with the separator
+		long rounded = (long)(scaled + 0.5);
+		int i = digits.length;
+		if(last) {
+			digits[--i] = '\n';
+		}
+		else {
+			digits[--i] = ' ';
+			digits[--i] = ',';
+		}
+		for(int j = 0;j < 4;j++) {
+			digits[--i] = (byte)('0' + rounded % 10);
+			rounded /= 10;
+		}
+		digits[--i] = '.';
+		do {
+			digits[--i] = (byte)('0' + rounded % 10);
+			rounded /= 10;
+		} while(rounded > 0);
+		// The sign is kept even when the value rounds to zero
+		if(Double.doubleToRawLongBits(value) < 0) {
+			digits[--i] = '-';
+		}
+		
+		if(buffer.remaining() < digits.length - i) {
+			flush();
+		}
+		buffer.put(digits, i, digits.length - i);
+	}
+	
+	private void slowValue(double value, boolean last) throws IOException {
+		String text;
+		if(localized || Double.isNaN(value) || Double.isInfinite(value)) {
+			text = String.format("%.4f", value);
+		}
+		else {
+			// Round the shortest decimal representation, the same as the formatter
+			text = new BigDecimal(Double.toString(Math.abs(value))).setScale(4, RoundingMode.HALF_UP).toPlainString();
+			if(Double.doubleToRawLongBits(value) < 0) {
+				text = "-" + text;
+			}
+		}
+		text(last ? text + "\n" : text + ", ");
+	}
+	
+	private void text(String text) throws IOException {
+		// Encoded the same as the PrintWriter used by the profile generator
+		byte[] bytes = text.getBytes();
+		for(int i = 0;i < bytes.length;) {
+			if(!buffer.hasRemaining()) {
+				flush();
+			}
+			int count = Math.min(buffer.remaining(), bytes.length - i);
+			buffer.put(bytes, i, count);
+			i += count;
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
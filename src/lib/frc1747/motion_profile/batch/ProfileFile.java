@@ -0,0 +1,235 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.Parameters;
+
+/**
+ * A generated profile saved in a binary format that can be used without parsing it.
+ * 
+ * The file starts with a fixed size header holding the number of points, the columns,
+ * and the parameters the profile was generated with.
+ * The six columns follow one after another as little endian doubles, the same as in an {@link OffHeapProfile},
+ * so a mapped file is used directly as the profile without being copied.
+ * The values are not rounded like the text format, so nothing is lost by saving a profile.
+ * <br>
+ * The header is, with every value little endian:<br>
+ * [magic, version, length, columns, dt, v_max, a_max, j_max, w_width, i_sample_length, i_sample_count, 0]<br>
+ * where the magic, version, length, columns, i_sample_count and the last value are ints,
+ * and the rest are doubles.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileFile {
+	/**
+	 * The extension used for binary profiles
+	 */
+	public static final String EXTENSION = ".bin";
+	/**
+	 * The first four bytes of every binary profile, "MPRF"
+	 */
+	public static final int MAGIC = 'M' | 'P' << 8 | 'R' << 16 | 'F' << 24;
+	/**
+	 * The version of the format written, which is increased whenever the format changes
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * The size of the header before the columns
+	 */
+	public static final int HEADER_BYTES = 72;
+	/**
+	 * The size of the parameters in the header
+	 */
+	static final int PARAMETER_BYTES = 56;
+	
+	public double v_max;
+	public double a_max;
+	public double j_max;
+	public double w_width;
+	public double dt;
+	public int i_sample_count;
+	public double i_sample_length;
+	
+	public OffHeapProfile profile;
+	
+	/**
+	 * Creates a ProfileFile with no profile and the default parameters.
+	 */
+	public ProfileFile() {
+		v_max = Parameters.V_MAX;
+		a_max = Parameters.A_MAX;
+		j_max = Parameters.J_MAX;
+		w_width = Parameters.W_WIDTH;
+		dt = Parameters.DT;
+		i_sample_count = Parameters.I_SAMPLE_COUNT;
+		i_sample_length = Parameters.I_SAMPLE_LENGTH;
+	}
+	
+	/**
+	 * Creates a ProfileFile for a profile generated from a waypoint file.
+	 * 
+	 * @param source the waypoints and parameters the profile was generated from
+	 * @param profile the translational and rotational profile
+	 */
+	public ProfileFile(WaypointFile source, OffHeapProfile profile) {
+		v_max = source.v_max;
+		a_max = source.a_max;
+		j_max = source.j_max;
+		w_width = source.w_width;
+		dt = source.dt;
+		i_sample_count = source.i_sample_count;
+		i_sample_length = source.i_sample_length;
+		this.profile = profile;
+	}
+	
+	/**
+	 * Maps a binary profile into memory.
+	 * The profile reads straight from the file, which stays mapped until the profile is garbage collected,
+	 * and cannot be changed.
+	 * 
+	 * @param file the file to map
+	 * @return the profile and the parameters it was generated with
+	 * @throws IOException if the file could not be read or is not a binary profile
+	 */
+	public static ProfileFile map(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer, file.toString());
+		}
+	}
+	
+	/**
+	 * Reads a binary profile from a buffer, without copying the columns.
+	 * 
+	 * @param buffer the buffer containing the binary profile, starting at its position
+	 * @param name the name of the profile, used in error messages
+	 * @return the profile and the parameters it was generated with
+	 * @throws IOException if the buffer does not contain a binary profile
+	 */
+	public static ProfileFile read(ByteBuffer buffer, String name) throws IOException {
+		ByteBuffer header = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if(header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+			throw new IOException(name + " is not a binary profile");
+		}
+		int version = header.getInt(4);
+		if(version != VERSION) {
+			throw new IOException(name + " is version " + version + ", only version " + VERSION + " can be read");
+		}
+		int length = header.getInt(8);
+		int columns = header.getInt(12);
+		if(columns != OffHeapProfile.COLUMNS) {
+			throw new IOException(name + " has " + columns + " columns instead of " + OffHeapProfile.COLUMNS);
+		}
+		if(length < 0 || header.remaining() - HEADER_BYTES < (long)length * columns * 8) {
+			throw new IOException(name + " is truncated");
+		}
+		
+		ProfileFile profileFile = new ProfileFile();
+		header.position(16);
+		getParameters(header, profileFile);
+		header.position(HEADER_BYTES);
+		profileFile.profile = new OffHeapProfile(header, length);
+		return profileFile;
+	}
+	
+	/**
+	 * Saves a profile and its parameters as a binary profile.
+	 * 
+	 * @param file the file to write
+	 * @param profileFile the profile and the parameters it was generated with
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(File file, ProfileFile profileFile) throws IOException {
+		ByteBuffer header = header(profileFile);
+		ByteBuffer columns = columns(profileFile);
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer[] buffers = {header, columns};
+			while(header.hasRemaining() || columns.hasRemaining()) {
+				channel.write(buffers);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of bytes a profile takes when saved as a binary profile.
+	 * 
+	 * @param profileFile the profile and the parameters it was generated with
+	 * @return the size of the header and columns
+	 */
+	static long size(ProfileFile profileFile) {
+		return HEADER_BYTES + (long)profileFile.profile.getLength() * OffHeapProfile.COLUMNS * 8;
+	}
+	
+	/**
+	 * Creates the header of a binary profile.
+	 * 
+	 * @param profileFile the profile and the parameters it was generated with
+	 * @return the header, ready to be written
+	 */
+	static ByteBuffer header(ProfileFile profileFile) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(profileFile.profile.getLength());
+		header.putInt(OffHeapProfile.COLUMNS);
+		putParameters(header, profileFile);
+		header.flip();
+		return header;
+	}
+	
+	/**
+	 * Writes the parameters a profile was generated with, as they are in the header.
+	 * 
+	 * @param buffer the little endian buffer to write into, at its position
+	 * @param profileFile the parameters the profile was generated with
+	 */
+	static void putParameters(ByteBuffer buffer, ProfileFile profileFile) {
+		buffer.putDouble(profileFile.dt);
+		buffer.putDouble(profileFile.v_max);
+		buffer.putDouble(profileFile.a_max);
+		buffer.putDouble(profileFile.j_max);
+		buffer.putDouble(profileFile.w_width);
+		buffer.putDouble(profileFile.i_sample_length);
+		buffer.putInt(profileFile.i_sample_count);
+		buffer.putInt(0);
+	}
+	
+	/**
+	 * Reads the parameters a profile was generated with, as they are in the header.
+	 * 
+	 * @param buffer the little endian buffer to read from, at its position
+	 * @param profileFile the ProfileFile to set the parameters of
+	 */
+	static void getParameters(ByteBuffer buffer, ProfileFile profileFile) {
+		profileFile.dt = buffer.getDouble();
+		profileFile.v_max = buffer.getDouble();
+		profileFile.a_max = buffer.getDouble();
+		profileFile.j_max = buffer.getDouble();
+		profileFile.w_width = buffer.getDouble();
+		profileFile.i_sample_length = buffer.getDouble();
+		profileFile.i_sample_count = buffer.getInt();
+		buffer.getInt();
+	}
+	
+	/**
+	 * Gets the columns of a binary profile.
+	 * 
+	 * @param profileFile the profile and the parameters it was generated with
+	 * @return the columns, ready to be written
+	 */
+	static ByteBuffer columns(ProfileFile profileFile) {
+		OffHeapProfile profile = profileFile.profile;
+		ByteBuffer columns = profile.getBuffer();
+		columns.limit(profile.getLength() * OffHeapProfile.COLUMNS * 8);
+		return columns;
+	}
+}
@@ -0,0 +1,103 @@
+package lib.frc1747.motion_profile.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+/**
+ * The waypoints and parameters saved by the spline generator.
+ * 
+ * Files are read the same way the spline generator opens them, so waypoints without limits are unlimited.
+ * Files without parameters have the defaults from {@link Parameters}, and {@link #hasParameters} is false
+ * so the spline generator can keep the parameters it already has instead.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class WaypointFile {
+	public double v_max;
+	public double a_max;
+	public double j_max;
+	public double w_width;
+	public double r_width;
+	public double r_length;
+	public double dt;
+	public int i_sample_count;
+	public double i_sample_length;
+	public boolean hasParameters;
+	
+	public List<Waypoint> waypoints;
+	
+	/**
+	 * Creates a WaypointFile with no waypoints and the default parameters.
+	 */
+	public WaypointFile() {
+		v_max = Parameters.V_MAX;
+		a_max = Parameters.A_MAX;
+		j_max = Parameters.J_MAX;
+		w_width = Parameters.W_WIDTH;
+		r_width = Parameters.R_WIDTH;
+		r_length = Parameters.R_LENGTH;
+		dt = Parameters.DT;
+		i_sample_count = Parameters.I_SAMPLE_COUNT;
+		i_sample_length = Parameters.I_SAMPLE_LENGTH;
+		
+		waypoints = new ArrayList<>();
+	}
+	
+	/**
+	 * Reads a file saved by the spline generator.
+	 * 
+	 * @param file the file to read
+	 * @return the waypoints and parameters in the file
+	 * @throws CsvFormatException if a value in the file is not a number
+	 * @throws IOException if the file could not be read
+	 */
+	public static WaypointFile read(File file) throws IOException {
+		WaypointFile waypointFile = new WaypointFile();
+		CsvParser parser = CsvParser.read(file);
+		while(parser.nextRow()) {
+			if(parser.peekEquals("Parameters")) {
+				parser.skipField();
+				waypointFile.v_max = parser.nextDouble();
+				waypointFile.a_max = parser.nextDouble();
+				waypointFile.j_max = parser.nextDouble();
+				waypointFile.w_width = parser.nextDouble();
+				waypointFile.r_width = parser.nextDouble();
+				waypointFile.r_length = parser.nextDouble();
+				waypointFile.dt = parser.nextDouble();
+				waypointFile.i_sample_count = parser.nextInt();
+				waypointFile.i_sample_length = parser.nextDouble();
+				waypointFile.hasParameters = true;
+			}
+			else if(parser.peekEquals("-")) {}
+			else {
+				Waypoint waypoint = new Waypoint();
+				waypoint.x = parser.nextDouble();
+				waypoint.y = parser.nextDouble();
+				waypoint.v_t = parser.nextDouble();
+				waypoint.v_m = parser.nextDouble();
+				waypoint.a_t = parser.nextDouble();
+				waypoint.a_m = parser.nextDouble();
+				if(parser.getColumnCount() >= 10) {
+					waypoint.m_sv = parser.nextDouble();
+					waypoint.m_sa = parser.nextDouble();
+					waypoint.m_av = parser.nextDouble();
+					waypoint.m_aa = parser.nextDouble();
+				}
+				else {
+					waypoint.m_sv = 1E6;
+					waypoint.m_sa = 1E6;
+					waypoint.m_av = 1E6;
+					waypoint.m_aa = 1E6;
+				}
+				waypointFile.waypoints.add(waypoint);
+			}
+		}
+		return waypointFile;
+	}
+}
@@ -0,0 +1,337 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+
+/**
+ * Limits and times profiles, reusing as much of the previous profile as possible.
+ * 
+ * When only part of a path changes, such as when a single waypoint is dragged, only the
+ * limits of the changed profile segments are recalculated. The velocity limits are kept as
+ * a forward pass and a reverse pass, which each depend on only one side of a point, so each
+ * pass only needs to be redone until it matches its previous value again.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class IncrementalProfileGenerator {
+	// The inputs of the last update
+	private SegmentBuffer profileSegments;
+	private double[][] waypointLimits;
+	private int[] waypointIndices;
+	private double vmax;
+	private double amax;
+	private double wwidth;
+	private boolean zeroStart;
+	private boolean zeroEnd;
+	
+	// The profile before velocity limiting
+	private Trajectory limitPoints;
+	// The velocity limits from the forward and reverse passes
+	private double[] forwardVelocities;
+	private double[] reverseVelocities;
+	// The profile after velocity limiting
+	private Trajectory profilePoints;
+	// The same profile returned as rows
+	// The format is [x0, v0, a0; x1, v1, a1; ...]
+	private double[][] profileRows;
+	private double[] profileTimes;
+	
+	/**
+	 * Creates the velocity and acceleration limited profile waypoints from the profile differences.
+	 * This combines integration, skid steer limiting, per waypoint limits, and velocity limiting.
+	 * The velocity at each cusp is forced to zero.
+	 * 
+	 * If the parameters and number of waypoints match the last update, only the parts of the
+	 * profile affected by the changed segments and waypoint limits are recalculated.
+	 * The returned array is reused by the next update.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 * @return the limited profile waypoints<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	public double[][] update(double[][] profileSegments, double[][] waypointLimits,
+			double vmax, double amax, double wwidth,
+			boolean zeroStart, boolean zeroEnd) {
+		SegmentBuffer segments = SegmentBuffer.fromRows(profileSegments);
+		int length = segments.length;
+		
+		// The range of points [start, end) that need new limits
+		int start;
+		int end;
+		// The first segment that changed
+		int changed;
+		boolean regenerate = false;
+		
+		if(	this.profilePoints == null ||
+			this.vmax != vmax || this.amax != amax || this.wwidth != wwidth ||
+			this.zeroStart != zeroStart || this.zeroEnd != zeroEnd ||
+			(this.waypointLimits == null) != (waypointLimits == null) ||
+			(waypointLimits != null && this.waypointLimits.length != waypointLimits.length)) {
+			// Regenerate everything
+			regenerate = true;
+			limitPoints = new Trajectory(length+1);
+			forwardVelocities = new double[length+1];
+			reverseVelocities = new double[length+1];
+			profilePoints = new Trajectory(length+1);
+			profileRows = new double[length+1][3];
+			profileTimes = new double[length+1];
+			start = 0;
+			end = length+1;
+			changed = 0;
+		}
+		else {
+			// Find the segments that are the same at the start and end of the profile
+			int oldLength = this.profileSegments.length;
+			int prefix = 0;
+			while(	prefix < length && prefix < oldLength &&
+					sameSegment(segments, prefix, this.profileSegments, prefix)) {
+				prefix++;
+			}
+			int suffix = 0;
+			while(	suffix < length - prefix && suffix < oldLength - prefix &&
+					sameSegment(segments, length-1-suffix, this.profileSegments, oldLength-1-suffix)) {
+				suffix++;
+			}
+			
+			// The limits at a point depend on the two segments before it and the segment after it
+			if(prefix == length && length == oldLength) {
+				start = length+1;
+				end = 0;
+			}
+			else {
+				start = Math.max(prefix - 2, 0);
+				end = Math.min(length - suffix + 3, length+1);
+			}
+			changed = prefix;
+			
+			if(length != oldLength) {
+				resize(length, start, end);
+			}
+		}
+		
+		// Integrate the positions of the recalculated points and the points after them
+		for(int i = Math.max(Math.min(start, changed), 1);i <= length;i++) {
+			limitPoints.x[i] = limitPoints.x[i-1] + segments.ds[i-1];
+			profilePoints.x[i] = limitPoints.x[i];
+			profileRows[i][0] = limitPoints.x[i];
+		}
+		
+		// Any point on a waypoint that moved or has changed limits also needs new limits
+		int[] waypointIndices = null;
+		if(waypointLimits != null) {
+			waypointIndices = ProfileGenerator.waypointIndices(limitPoints, waypointLimits);
+		}
+		if(!regenerate && waypointLimits != null) {
+			int shift = length - this.profileSegments.length;
+			for(int j = 0;j < waypointLimits.length;j++) {
+				int oldIndex = this.waypointIndices[j];
+				if(oldIndex > changed) {
+					oldIndex += shift;
+				}
+				if(	oldIndex != waypointIndices[j] ||
+					waypointLimits[j][1] != this.waypointLimits[j][1] ||
+					waypointLimits[j][2] != this.waypointLimits[j][2]) {
+					if(oldIndex >= 0) {
+						start = Math.min(start, oldIndex);
+						end = Math.max(end, oldIndex+1);
+					}
+					if(waypointIndices[j] >= 0) {
+						start = Math.min(start, waypointIndices[j]);
+						end = Math.max(end, waypointIndices[j]+1);
+					}
+				}
+			}
+		}
+		
+		this.profileSegments = segments;
+		this.waypointLimits = copyLimits(waypointLimits);
+		this.waypointIndices = waypointIndices;
+		this.vmax = vmax;
+		this.amax = amax;
+		this.wwidth = wwidth;
+		this.zeroStart = zeroStart;
+		this.zeroEnd = zeroEnd;
+		
+		// Nothing has changed
+		if(start >= end) {
+			return profileRows;
+		}
+		
+		limitRange(start, end);
+		
+		// Redo the forward pass until it matches the previous forward pass
+		int forwardEnd = start;
+		for(int i = start;i <= length;i++) {
+			double v = limitPoints.v[i];
+			if(i > 0) {
+				v = ProfileGenerator.neighborLimit(forwardVelocities[i-1], v, limitPoints.a[i], segments.ds[i-1]);
+			}
+			if(i >= end && v == forwardVelocities[i]) {
+				break;
+			}
+			forwardVelocities[i] = v;
+			forwardEnd = i+1;
+		}
+		
+		// Redo the reverse pass until it matches the previous reverse pass
+		int reverseStart = end;
+		for(int i = end-1;i >= 0;i--) {
+			double v = limitPoints.v[i];
+			if(i < length) {
+				v = ProfileGenerator.neighborLimit(reverseVelocities[i+1], v, limitPoints.a[i], segments.ds[i]);
+			}
+			if(i < start && v == reverseVelocities[i]) {
+				break;
+			}
+			reverseVelocities[i] = v;
+			reverseStart = i;
+		}
+		
+		// Combine the passes where either of them changed
+		for(int i = reverseStart;i < forwardEnd;i++) {
+			profilePoints.v[i] = Math.abs(forwardVelocities[i]) <= Math.abs(reverseVelocities[i]) ?
+					forwardVelocities[i] : reverseVelocities[i];
+			profilePoints.a[i] = limitPoints.a[i];
+			profileRows[i][1] = profilePoints.v[i];
+			profileRows[i][2] = profilePoints.a[i];
+		}
+		
+		// Retime the points next to a changed velocity or position, then shift the rest
+		int timeStart = Math.max(Math.min(reverseStart, changed + 1), 1);
+		int timeEnd = Math.min(Math.max(forwardEnd, end), length);
+		double oldTime = profileTimes[timeEnd];
+		ProfileGenerator.timesFromPoints(profilePoints, profileTimes, timeStart-1, timeEnd+1);
+		for(int i = timeStart;i <= timeEnd;i++) {
+			profileTimes[i] += profileTimes[timeStart-1];
+		}
+		double offset = profileTimes[timeEnd] - oldTime;
+		for(int i = timeEnd+1;i <= length;i++) {
+			profileTimes[i] += offset;
+		}
+		
+		return profileRows;
+	}
+	
+	/**
+	 * Gets the time at each profile waypoint of the last update.
+	 * The returned array is reused by the next update.
+	 * 
+	 * @return the time at each profile waypoint as an array
+	 */
+	public double[] getProfileTimes() {
+		return profileTimes;
+	}
+	
+	/**
+	 * Forgets the last update, so the next update regenerates the whole profile.
+	 */
+	public void reset() {
+		profileSegments = null;
+		waypointLimits = null;
+		waypointIndices = null;
+		limitPoints = null;
+		forwardVelocities = null;
+		reverseVelocities = null;
+		profilePoints = null;
+		profileRows = null;
+		profileTimes = null;
+	}
+	
+	/**
+	 * Recalculates the limits of a range of points before velocity limiting.
+	 * 
+	 * @param start the index of the first point to limit
+	 * @param end the index after the last point to limit
+	 */
+	private void limitRange(int start, int end) {
+		int length = profileSegments.length;
+		
+		ProfileGenerator.skidSteerLimitVelocities(limitPoints, profileSegments,
+				vmax, amax, wwidth, start, end);
+		if(waypointLimits != null) {
+			ProfileGenerator.applyWaypointLimits(limitPoints, waypointLimits, waypointIndices, start, end);
+		}
+		
+		// The robot must stop to change directions
+		for(int cusp : SegmentedProfileGenerator.findCusps(profileSegments)) {
+			if(cusp >= start && cusp < end) {
+				limitPoints.v[cusp] = 0;
+				limitPoints.a[cusp] = 0;
+			}
+		}
+		
+		// Force the max everything at the endpoints of the profile to zero
+		if(zeroStart && start == 0) {
+			limitPoints.v[0] = 0;
+			limitPoints.a[0] = 0;
+		}
+		if(zeroEnd && end == length+1) {
+			limitPoints.v[length] = 0;
+			limitPoints.a[length] = 0;
+		}
+	}
+	
+	/**
+	 * Resizes the cached arrays, keeping the points before start and after end.
+	 * 
+	 * @param length the new number of segments
+	 * @param start the index of the first point that will be recalculated
+	 * @param end the index after the last point that will be recalculated
+	 */
+	private void resize(int length, int start, int end) {
+		int shift = length - (profilePoints.length-1);
+		int suffix = length+1 - end;
+		
+		double[][] newProfileRows = new double[length+1][];
+		System.arraycopy(profileRows, 0, newProfileRows, 0, start);
+		System.arraycopy(profileRows, end - shift, newProfileRows, end, suffix);
+		for(int i = start;i < end;i++) {
+			newProfileRows[i] = new double[3];
+		}
+		
+		limitPoints = resize(limitPoints, length, start, end, shift);
+		profilePoints = resize(profilePoints, length, start, end, shift);
+		forwardVelocities = resize(forwardVelocities, length, start, end, shift);
+		reverseVelocities = resize(reverseVelocities, length, start, end, shift);
+		profileRows = newProfileRows;
+		profileTimes = resize(profileTimes, length, start, end, shift);
+	}
+	
+	private static Trajectory resize(Trajectory trajectory, int length, int start, int end, int shift) {
+		Trajectory resized = new Trajectory(0);
+		resized.x = resize(trajectory.x, length, start, end, shift);
+		resized.v = resize(trajectory.v, length, start, end, shift);
+		resized.a = resize(trajectory.a, length, start, end, shift);
+		resized.length = length+1;
+		return resized;
+	}
+	
+	private static double[] resize(double[] array, int length, int start, int end, int shift) {
+		double[] resized = new double[length+1];
+		System.arraycopy(array, 0, resized, 0, start);
+		System.arraycopy(array, end - shift, resized, end, length+1 - end);
+		return resized;
+	}
+	
+	private static boolean sameSegment(SegmentBuffer a, int i, SegmentBuffer b, int j) {
+		return a.ds[i] == b.ds[j] && a.dtheta[i] == b.dtheta[j];
+	}
+	
+	private static double[][] copyLimits(double[][] waypointLimits) {
+		if(waypointLimits == null) return null;
+		double[][] copy = new double[waypointLimits.length][];
+		for(int i = 0;i < waypointLimits.length;i++) {
+			copy[i] = waypointLimits[i].clone();
+		}
+		return copy;
+	}
+}
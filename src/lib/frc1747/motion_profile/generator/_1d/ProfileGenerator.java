@@ -1,5 +1,9 @@
 package lib.frc1747.motion_profile.generator._1d;
 
+import java.util.Arrays;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
 import lib.frc1747.motion_profile.Util;
 
 /**
@@ -86,45 +90,33 @@ public class ProfileGenerator {
 	 */
 	public static void skidSteerLimitVelocities(double[][] profilePoints, double[][] profileSegments,
 			double vmax, double amax, double wwidth) {
-		// Fill out the max velocities and accelerations for each segment
-		int length = profileSegments.length;
-		for(int i = 0;i < length;i++) {
-			// Calculate ds
-			double ds = 0;
-			if(i > 0) ds += profileSegments[i-1][0];
-			if(i < length-1) ds += profileSegments[i][0];
-			double signed_ds = ds;
-			ds = Math.abs(ds) / 2;
-			
-			// Calculate dtheta
-			double dtheta = 0;
-			if(i > 0) dtheta += profileSegments[i-1][1];
-			if(i < length-1) dtheta += profileSegments[i][1];
-			dtheta = Math.abs(dtheta) / 2;
-			
-			// Calculate ddtheta
-			double ddtheta = 0;
-			if(i > 0) ddtheta -= profileSegments[i-1][1];
-			if(i < length-1) ddtheta += profileSegments[i][1];
-			ddtheta = Math.abs(ddtheta);
-			
-			profilePoints[i][1] = vmax/(1 + wwidth/2 * (dtheta/ds + ddtheta/ds/ds)) *
-					Math.signum(signed_ds);
-			profilePoints[i][2] = amax/(1 + wwidth/2 * (dtheta/ds + ddtheta/ds/ds));
-		}
-		
-		// Adjust the max velocities and accelerations so they fall on the points
-		profilePoints[profilePoints.length-1][1] = profilePoints[profilePoints.length-2][1];
-		profilePoints[profilePoints.length-1][2] = profilePoints[profilePoints.length-2][2];
-		for(int i = profilePoints.length-2;i >= 1;i--) {
-			profilePoints[i][1] = (profilePoints[i][1] + profilePoints[i-1][1])/2;
-			profilePoints[i][2] = (profilePoints[i][2] + profilePoints[i-1][2])/2;
-		}
+		Trajectory trajectory = Trajectory.fromRows(profilePoints);
+		skidSteerLimitVelocities(trajectory, SegmentBuffer.fromRows(profileSegments), vmax, amax, wwidth);
+		copyRows(trajectory, profilePoints);
+	}
+	
+	/**
+	 * Applies the per waypoint limits to the profile points that fall on each waypoint.
+	 * Limits with a magnitude of 1E3 or more are treated as unlimited.
+	 * 
+	 * @param profilePoints the profile to limit<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param waypointLimits the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...] 
+	 */
+	public static void applyWaypointLimits(double[][] profilePoints, double[][] waypointLimits) {
+		if(waypointLimits == null) return;
+		Trajectory trajectory = Trajectory.fromRows(profilePoints);
+		applyWaypointLimits(trajectory, waypointLimits);
+		copyRows(trajectory, profilePoints);
 	}
 	
 	/**
 	 * Adjusts the velocities so that the acceleration limits are not violated.
 	 * 
+	 * This visits the points in order of increasing speed, which takes quadratic time.
+	 * It is kept as the reference implementation for {@link #sweepLimitVelocities(double[][])}.
+	 * 
 	 * @param profilePoints - the profile to adjust velocities<br>
 	 * The format is [x0, v0, a0; x1, v1, a1; ...]
 	 */
@@ -184,6 +176,23 @@ public class ProfileGenerator {
 			profileVisiteds[index] = 1;
 		}
 	}
+
+	/**
+	 * Adjusts the velocities so that the acceleration limits are not violated.
+	 * 
+	 * Produces the same result as {@link #limitVelocities(double[][])}, but runs in linear time.
+	 * Because each point is only ever limited by its immediate neighbors, the slowest
+	 * reachable velocity at each point can be found with one forward sweep (limiting each point
+	 * by the point before it) followed by one backward sweep (limiting each point by the point after it).
+	 * 
+	 * @param profilePoints - the profile to adjust velocities<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	public static void sweepLimitVelocities(double[][] profilePoints) {
+		Trajectory trajectory = Trajectory.fromRows(profilePoints);
+		sweepLimitVelocities(trajectory);
+		copyRows(trajectory, profilePoints);
+	}
 	
 	/**
 	 * Determines the time for each profile waypoint.
@@ -193,22 +202,7 @@ public class ProfileGenerator {
 	 * @return the time at each profile waypoint as an array
 	 */
 	public static double[] timesFromPoints(double[][] profilePoints) {
-		double[] profileTimes = new double[profilePoints.length];
-		for(int i = 0;i < profilePoints.length;i++) {
-			profileTimes[i] = 0;
-		}
-		
-		// Add times to the profile
-		for(int i = 1;i < profilePoints.length;i++) {
-			double v0 = profilePoints[i-1][1];
-			double vt = profilePoints[i][1];
-			double x0 = profilePoints[i-1][0];
-			double xt = profilePoints[i][0];
-			double t = 2 * (xt - x0)/(v0 + vt);
-			profileTimes[i] = profileTimes[i-1] + Math.abs(t);
-		}
-		
-		return profileTimes;
+		return timesFromPoints(Trajectory.fromRows(profilePoints));
 	}
 
 	/**
@@ -222,46 +216,510 @@ public class ProfileGenerator {
 	 * The format is [x0, v0, a0; x1, v1, a1; ...]
 	 */
 	public static double[][] profileFromPoints(double[][] profilePoints, double[] profileTimes, double dt) {
+		return profileFromPoints(Trajectory.fromRows(profilePoints), profileTimes, dt).toRows();
+	}
+	
+	/**
+	 * Creates a profile that is synchronized with an existing profile
+	 * 
+	 * @param timePoints the existing time parameterized profile
+	 * @param profilePoints the profile waypoints
+	 * @param profilePoints2 the profile waypoints to synchronize with the existing profile waypoints
+	 * @param profileTimes the times of the profile waypoints
+	 * @param dt the timestep of the time parameterized profile
+	 * @return the time parameterized second profile
+	 */
+	public static double[][] synchronizedProfileFromProfile(double[][] timePoints,
+			double[][] profilePoints, double[] profilePoints2, double[] profileTimes,
+			double dt) {
+		return synchronizedProfileFromProfile(Trajectory.fromRows(timePoints),
+				Trajectory.fromRows(profilePoints), profilePoints2, profileTimes, dt).toRows();
+	}
+	
+	/**
+	 * Integrates the differences of the profile segments to get the location at each
+	 * time instant. Puts it in the correct format for later methods if this is the primary motion profile.
+	 * 
+	 * @param profileSegments a list of distance and rotation differences
+	 * @return a list of locations at each time, with zero velocities and accelerations
+	 */
+	public static Trajectory primaryProfileIntegrate(SegmentBuffer profileSegments) {
+		Trajectory profilePoints = new Trajectory(profileSegments.length+1);
+		primaryProfileIntegrate(profileSegments, profilePoints);
+		return profilePoints;
+	}
+	
+	/**
+	 * Integrates the differences of the profile segments to get the location at each
+	 * time instant. Puts it in the correct format for later methods if this is the primary motion profile.
+	 * 
+	 * @param profileSegments a list of distance and rotation differences
+	 * @param profilePoints the profile to write the locations into, with zero velocities and accelerations,
+	 * which is resized to fit them
+	 */
+	public static void primaryProfileIntegrate(SegmentBuffer profileSegments, Trajectory profilePoints) {
+		profilePoints.setLength(profileSegments.length+1);
+		Arrays.fill(profilePoints.v, 0, profilePoints.length, 0);
+		Arrays.fill(profilePoints.a, 0, profilePoints.length, 0);
+		
+		profilePoints.x[0] = 0;
+		for(int i = 1;i < profilePoints.length;i++) {
+			profilePoints.x[i] = profilePoints.x[i-1] + profileSegments.ds[i-1];
+		}
+	}
+	
+	/**
+	 * Integrates the rotation differences of the profile segments to get the rotation at each
+	 * time instant. Puts it in the correct format for later methods if this is a profile
+	 * that needs to be synchronized with another profile.
+	 * 
+	 * @param profileSegments a list of distance and rotation differences
+	 * @return a list of rotations at each time<br>
+	 * The format is [q0, q1, ...]
+	 */
+	public static double[] secondaryProfileIntegrate(SegmentBuffer profileSegments) {
+		double[] profilePoints = new double[profileSegments.length+1];
+		secondaryProfileIntegrate(profileSegments, profilePoints);
+		return profilePoints;
+	}
+	
+	/**
+	 * Integrates the rotation differences of the profile segments to get the rotation at each
+	 * time instant. Puts it in the correct format for later methods if this is a profile
+	 * that needs to be synchronized with another profile.
+	 * 
+	 * @param profileSegments a list of distance and rotation differences
+	 * @param profilePoints the array to write the rotation at each time into,
+	 * which must hold at least one more value than there are segments
+	 */
+	public static void secondaryProfileIntegrate(SegmentBuffer profileSegments, double[] profilePoints) {
+		profilePoints[0] = 0;
+		for(int i = 1;i <= profileSegments.length;i++) {
+			profilePoints[i] = profilePoints[i-1] + profileSegments.dtheta[i-1];
+		}
+	}
+	
+	/**
+	 * Calculates the maximum acceleration and velocities for each profile point
+	 * given the profile differences, max linear accelerations and velocities,
+	 * and robot wheel width. Fills in the (primary) profilePoints that are passed in.
+	 * 
+	 * @param profilePoints the translation distance at each time instant
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param wwidth the track width of the robot
+	 */
+	public static void skidSteerLimitVelocities(Trajectory profilePoints, SegmentBuffer profileSegments,
+			double vmax, double amax, double wwidth) {
+		skidSteerLimitVelocities(profilePoints, profileSegments, vmax, amax, wwidth, 0, profilePoints.length);
+	}
+	
+	/**
+	 * Calculates the maximum acceleration and velocities for a range of profile points
+	 * given the profile differences, max linear accelerations and velocities,
+	 * and robot wheel width. Only the points in the range are written, so several ranges
+	 * of the same profile can be filled in at the same time.
+	 * 
+	 * @param profilePoints the translation distance at each time instant
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param start the index of the first point to fill in
+	 * @param end the index after the last point to fill in
+	 */
+	public static void skidSteerLimitVelocities(Trajectory profilePoints, SegmentBuffer profileSegments,
+			double vmax, double amax, double wwidth, int start, int end) {
+		// Fill out the max velocities and accelerations for each segment,
+		// adjusting them so they fall on the points
+		int length = profileSegments.length;
+		double previousV = 0;
+		double previousA = 0;
+		for(int i = Math.max(start - 1, 0);i < Math.min(end, length);i++) {
+			double scale = skidSteerScale(profileSegments, wwidth, i);
+			double v = vmax/scale * skidSteerDirection(profileSegments, i);
+			double a = amax/scale;
+			
+			if(i == 0 && start == 0) {
+				profilePoints.v[i] = v;
+				profilePoints.a[i] = a;
+			}
+			else if(i >= start) {
+				profilePoints.v[i] = (v + previousV)/2;
+				profilePoints.a[i] = (a + previousA)/2;
+			}
+			previousV = v;
+			previousA = a;
+		}
+		
+		// The last point takes the limits of the last segment
+		if(end > length) {
+			profilePoints.v[length] = previousV;
+			profilePoints.a[length] = previousA;
+		}
+	}
+	
+	/**
+	 * Finds how much turning scales down the straight line limits of the segment centered on a profile point,
+	 * which is made of half of each profile segment next to the point.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param wwidth the track width of the robot
+	 * @param i the index of the point
+	 * @return the amount to divide the max velocity and acceleration by,
+	 * which is infinite if the segment has no length
+	 */
+	static double skidSteerScale(SegmentBuffer profileSegments, double wwidth, int i) {
+		double[] segmentDs = profileSegments.ds;
+		double[] segmentDthetas = profileSegments.dtheta;
+		int length = profileSegments.length;
+		
+		// Calculate ds
+		double ds = 0;
+		if(i > 0) ds += segmentDs[i-1];
+		if(i < length-1) ds += segmentDs[i];
+		ds = Math.abs(ds) / 2;
+		// The robot cannot move along a segment with no length, such as where it reverses
+		if(ds == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		
+		// Calculate dtheta
+		double dtheta = 0;
+		if(i > 0) dtheta += segmentDthetas[i-1];
+		if(i < length-1) dtheta += segmentDthetas[i];
+		dtheta = Math.abs(dtheta) / 2;
+		
+		// Calculate ddtheta
+		double ddtheta = 0;
+		if(i > 0 && i < length-1 && segmentDs[i-1] != segmentDs[i]) {
+			// Compare the curvature of segments with different lengths, scaled to the average length
+			ddtheta = (segmentDthetas[i] / Math.abs(segmentDs[i]) -
+					segmentDthetas[i-1] / Math.abs(segmentDs[i-1])) * ds;
+		}
+		else {
+			if(i > 0) ddtheta -= segmentDthetas[i-1];
+			if(i < length-1) ddtheta += segmentDthetas[i];
+		}
+		ddtheta = Math.abs(ddtheta);
+		
+		return 1 + wwidth/2 * (dtheta/ds + ddtheta/ds/ds);
+	}
+	
+	/**
+	 * Finds the direction of travel of the segment centered on a profile point.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param i the index of the point
+	 * @return 1 if the segment goes forwards, -1 if it goes backwards, or 0 if it has no length
+	 */
+	static double skidSteerDirection(SegmentBuffer profileSegments, int i) {
+		double ds = 0;
+		if(i > 0) ds += profileSegments.ds[i-1];
+		if(i < profileSegments.length-1) ds += profileSegments.ds[i];
+		return Math.signum(ds);
+	}
+	
+	/**
+	 * Applies the per waypoint limits to the profile points that fall on each waypoint.
+	 * Limits with a magnitude of 1E3 or more are treated as unlimited.
+	 * 
+	 * @param profilePoints the profile to limit
+	 * @param waypointLimits the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...] 
+	 */
+	public static void applyWaypointLimits(Trajectory profilePoints, double[][] waypointLimits) {
+		if(waypointLimits == null) return;
+		for(int i = 0, j = 0;i < profilePoints.length && j < waypointLimits.length;i++) {
+			if(Math.abs(waypointLimits[j][0] - profilePoints.x[i]) < 1E-3) {
+				applyWaypointLimit(profilePoints, waypointLimits[j], i);
+				j++;
+			}
+		}
+	}
+	
+	/**
+	 * Applies the per waypoint limits to the profile points in a range that fall on each waypoint.
+	 * Limits with a magnitude of 1E3 or more are treated as unlimited.
+	 * 
+	 * @param profilePoints the profile to limit
+	 * @param waypointLimits the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...] 
+	 * @param waypointIndices the index of the profile point on each waypoint, as found by
+	 * {@link #waypointIndices(Trajectory, double[][])}
+	 * @param start the index of the first point to limit
+	 * @param end the index after the last point to limit
+	 */
+	public static void applyWaypointLimits(Trajectory profilePoints, double[][] waypointLimits,
+			int[] waypointIndices, int start, int end) {
+		for(int j = 0;j < waypointLimits.length;j++) {
+			int i = waypointIndices[j];
+			if(i >= start && i < end) {
+				applyWaypointLimit(profilePoints, waypointLimits[j], i);
+			}
+		}
+	}
+	
+	/**
+	 * Applies the limits of one waypoint to the profile point that falls on it.
+	 * 
+	 * @param profilePoints the profile to limit
+	 * @param waypointLimit the limits at the waypoint<br>
+	 * The format is [s, m_sv, m_sa, m_av, m_aa]
+	 * @param i the index of the profile point on the waypoint
+	 */
+	static void applyWaypointLimit(Trajectory profilePoints, double[] waypointLimit, int i) {
+		if(Math.abs(waypointLimit[1]) < 1E3) {
+			profilePoints.v[i] = waypointLimit[1];
+		}
+		if(Math.abs(waypointLimit[2]) < 1E3) {
+			profilePoints.a[i] = waypointLimit[2];
+		}
+	}
+	
+	/**
+	 * Finds the profile point that falls on each waypoint.
+	 * The waypoints are matched in order, so paths that cross themselves are handled correctly.
+	 * 
+	 * @param profilePoints the profile
+	 * @param waypointLimits the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...] 
+	 * @return the index of the profile point on each waypoint, or -1 if there is none
+	 */
+	public static int[] waypointIndices(Trajectory profilePoints, double[][] waypointLimits) {
+		int[] waypointIndices = new int[waypointLimits.length];
+		int j = 0;
+		for(int i = 0;i < profilePoints.length && j < waypointLimits.length;i++) {
+			if(Math.abs(waypointLimits[j][0] - profilePoints.x[i]) < 1E-3) {
+				waypointIndices[j] = i;
+				j++;
+			}
+		}
+		for(;j < waypointLimits.length;j++) {
+			waypointIndices[j] = -1;
+		}
+		return waypointIndices;
+	}
+	
+	/**
+	 * Adjusts the velocities so that the acceleration limits are not violated.
+	 * 
+	 * @param profilePoints - the profile to adjust velocities
+	 * @see #sweepLimitVelocities(double[][])
+	 */
+	public static void sweepLimitVelocities(Trajectory profilePoints) {
+		sweepLimitVelocities(profilePoints, 0, profilePoints.length);
+	}
+	
+	/**
+	 * Adjusts the velocities of a range of points so that the acceleration limits are not violated.
+	 * Points outside of the range are neither read nor written, so if the points at both ends of
+	 * the range have zero velocity, the result is the same as limiting the whole profile.
+	 * 
+	 * @param profilePoints - the profile to adjust velocities
+	 * @param start the index of the first point to adjust
+	 * @param end the index after the last point to adjust
+	 */
+	public static void sweepLimitVelocities(Trajectory profilePoints, int start, int end) {
+		double[] x = profilePoints.x;
+		double[] v = profilePoints.v;
+		double[] a = profilePoints.a;
+		
+		// Forward sweep: limit each point by its left neighbor
+		for(int i = start+1;i < end;i++) {
+			v[i] = neighborLimit(v[i-1], v[i], a[i], x[i] - x[i-1]);
+		}
+		
+		// Backward sweep: limit each point by its right neighbor
+		for(int i = end-2;i >= start;i--) {
+			v[i] = neighborLimit(v[i+1], v[i], a[i], x[i+1] - x[i]);
+		}
+	}
+	
+	/**
+	 * Limits the velocity at a point by the velocity at a neighboring point.
+	 * 
+	 * @param vo the velocity at the neighboring point
+	 * @param vt the velocity limit at the point
+	 * @param ao the acceleration limit at the point
+	 * @param ds the distance between the two points, in the direction of travel
+	 * @return the limited velocity at the point
+	 */
+	static double neighborLimit(double vo, double vt, double ao, double ds) {
+		double vt2 = Math.signum(ds) * Math.sqrt(vo * vo + 2 * ao * Math.abs(ds));
+		return Math.abs(vt2) < Math.abs(vt) ? vt2 : vt;
+	}
+	
+	/**
+	 * Determines the time for each profile waypoint.
+	 * 
+	 * @param profilePoints the profile waypoints
+	 * @return the time at each profile waypoint as an array
+	 */
+	public static double[] timesFromPoints(Trajectory profilePoints) {
+		double[] profileTimes = new double[profilePoints.length];
+		timesFromPoints(profilePoints, profileTimes);
+		return profileTimes;
+	}
+	
+	/**
+	 * Determines the time for each profile waypoint.
+	 * 
+	 * @param profilePoints the profile waypoints
+	 * @param profileTimes the array to write the time at each profile waypoint into,
+	 * which must be at least as long as the profile
+	 */
+	public static void timesFromPoints(Trajectory profilePoints, double[] profileTimes) {
+		profileTimes[0] = 0;
+		timesFromPoints(profilePoints, profileTimes, 0, profilePoints.length);
+	}
+	
+	/**
+	 * Determines the time for a range of profile waypoints, measured from the first waypoint of the range.
+	 * The time of the first waypoint is not written, so neighboring ranges may share it.
+	 * 
+	 * @param profilePoints the profile waypoints
+	 * @param profileTimes the array to write the times into
+	 * @param start the index of the first waypoint of the range
+	 * @param end the index after the last waypoint of the range
+	 */
+	public static void timesFromPoints(Trajectory profilePoints, double[] profileTimes, int start, int end) {
+		double[] x = profilePoints.x;
+		double[] v = profilePoints.v;
+		
+		// Add times to the profile
+		double time = 0;
+		for(int i = start+1;i < end;i++) {
+			double t = 2 * (x[i] - x[i-1])/(v[i-1] + v[i]);
+			time += Math.abs(t);
+			profileTimes[i] = time;
+		}
+	}
+	
+	/**
+	 * Creates a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the desired timestep of the time parameterized profile
+	 * @return a time parameterized profile
+	 */
+	public static Trajectory profileFromPoints(Trajectory profilePoints, double[] profileTimes, double dt) {
+		Trajectory timePoints = new Trajectory(0);
+		profileFromPoints(profilePoints, profileTimes, dt, timePoints);
+		return timePoints;
+	}
+	
+	/**
+	 * Creates a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the desired timestep of the time parameterized profile
+	 * @param timePoints the profile to write the time parameterized profile into,
+	 * which is resized to fit it
+	 */
+	public static void profileFromPoints(Trajectory profilePoints, double[] profileTimes, double dt,
+			Trajectory timePoints) {
+		profileFromPoints(profilePoints, profileTimes, dt, false, timePoints);
+	}
+	
+	/**
+	 * Creates a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * Cubic Hermite interpolation also matches the acceleration at each waypoint,
+	 * so the velocity stays smooth when the waypoints are further apart.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the desired timestep of the time parameterized profile
+	 * @param hermite if the velocity should use cubic Hermite instead of linear interpolation
+	 * @param timePoints the profile to write the time parameterized profile into,
+	 * which is resized to fit it
+	 */
+	public static void profileFromPoints(Trajectory profilePoints, double[] profileTimes, double dt,
+			boolean hermite, Trajectory timePoints) {
 		double profileTime = profileTimes[profilePoints.length-1];
-		// The format is [x0, v0, a0; x1, v1, a1; ...]
-		double[][] timePoints = new double[(int)Math.ceil(profileTime / dt)][3];
+		timePoints.setLength((int)Math.ceil(profileTime / dt));
+		Arrays.fill(timePoints.x, 0, timePoints.length, 0);
+		Arrays.fill(timePoints.v, 0, timePoints.length, 0);
+		Arrays.fill(timePoints.a, 0, timePoints.length, 0);
+		
+		sampleVelocities(profilePoints, profileTimes, dt, hermite, timePoints, 0, timePoints.length, 0);
+		integrateVelocities(timePoints, dt);
+	}
+	
+	/**
+	 * Fills in the velocities of a range of a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the timestep of the time parameterized profile
+	 * @param hermite if the velocity should use cubic Hermite instead of linear interpolation
+	 * @param timePoints the time parameterized profile to fill in
+	 * @param start the index of the first time step to fill in
+	 * @param end the index after the last time step to fill in
+	 * @param k the index of a waypoint at or before the time of the first time step
+	 */
+	public static void sampleVelocities(Trajectory profilePoints, double[] profileTimes, double dt,
+			boolean hermite, Trajectory timePoints, int start, int end, int k) {
+		double[] v = profilePoints.v;
+		double[] tv = timePoints.v;
 		
 		// Populate the time parameterized profile
-		velocityPointsLoop:
-		for(int i = 0, k = 0;i < timePoints.length;i++) {
+		for(int i = start;i < end;i++) {
 			double t = i * dt;
 			while(profileTimes[k+1] < t) {
 				k++;
 				// We done generating the profile
 				if(k > profilePoints.length-2) {
-					break velocityPointsLoop;
+					return;
 				}
 			}
 			
 			// The arc velocity exactly corresponds with a table value
 			if(t == profileTimes[k]) {
-				timePoints[i][1] = profilePoints[k][1];
+				tv[i] = v[k];
 			}
 			// Interpolate
+			else if(hermite) {
+				tv[i] = Util.hermiteInterpolate(
+						t,
+						profileTimes[k], profileTimes[k+1],
+						v[k], v[k+1],
+						Util.hermiteSlope(profileTimes, v, k, profilePoints.length),
+						Util.hermiteSlope(profileTimes, v, k+1, profilePoints.length));
+			}
 			else {
-				timePoints[i][1] = Util.linearInterpolate(
+				tv[i] = Util.linearInterpolate(
 						t,
 						profileTimes[k], profileTimes[k+1],
-						profilePoints[k][1], profilePoints[k+1][1]);
+						v[k], v[k+1]);
 			}
 		}
+	}
+	
+	/**
+	 * Fills in the accelerations and positions of a time parameterized profile from its velocities.
+	 * 
+	 * @param timePoints the time parameterized profile with velocities filled in
+	 * @param dt the timestep of the time parameterized profile
+	 */
+	public static void integrateVelocities(Trajectory timePoints, double dt) {
+		double[] tx = timePoints.x;
+		double[] tv = timePoints.v;
+		double[] ta = timePoints.a;
 		
 		// Take the derivative to fill in the accelerations
 		for(int i = 1;i < timePoints.length-1;i++) {
-			timePoints[i][2] = (timePoints[i+1][1] - timePoints[i-1][1]) / dt / 2;
+			ta[i] = (tv[i+1] - tv[i-1]) / dt / 2;
 		}
 		
 		// Take the integral to fill in the positions
 		for(int i = 1;i < timePoints.length;i++) {
-			timePoints[i][0] = timePoints[i-1][0] + (timePoints[i-1][1] + timePoints[i][1])/2 * dt;
+			tx[i] = tx[i-1] + (tv[i-1] + tv[i])/2 * dt;
 		}
-		
-		return timePoints;
 	}
 	
 	/**
@@ -274,14 +732,63 @@ public class ProfileGenerator {
 	 * @param dt the timestep of the time parameterized profile
 	 * @return the time parameterized second profile
 	 */
-	public static double[][] synchronizedProfileFromProfile(double[][] timePoints,
-			double[][] profilePoints, double[] profilePoints2, double[] profileTimes,
+	public static Trajectory synchronizedProfileFromProfile(Trajectory timePoints,
+			Trajectory profilePoints, double[] profilePoints2, double[] profileTimes,
 			double dt) {
+		Trajectory angularTimePoints = new Trajectory(timePoints.length);
+		synchronizedProfileFromProfile(timePoints, profilePoints, profilePoints2, profileTimes, dt,
+				angularTimePoints);
+		return angularTimePoints;
+	}
+	
+	/**
+	 * Creates a profile that is synchronized with an existing profile
+	 * 
+	 * @param timePoints the existing time parameterized profile
+	 * @param profilePoints the profile waypoints
+	 * @param profilePoints2 the profile waypoints to synchronize with the existing profile waypoints
+	 * @param profileTimes the times of the profile waypoints
+	 * @param dt the timestep of the time parameterized profile
+	 * @param angularTimePoints the profile to write the time parameterized second profile into,
+	 * which is resized to fit it
+	 */
+	public static void synchronizedProfileFromProfile(Trajectory timePoints,
+			Trajectory profilePoints, double[] profilePoints2, double[] profileTimes,
+			double dt, Trajectory angularTimePoints) {
+		synchronizedProfileFromProfile(timePoints, profilePoints, profilePoints2, profileTimes, dt, false,
+				angularTimePoints);
+	}
+	
+	/**
+	 * Creates a profile that is synchronized with an existing profile
+	 * 
+	 * Cubic Hermite interpolation also matches the rate of change of the second profile waypoints
+	 * with the existing ones, so the angular velocity does not step at each waypoint.
+	 * 
+	 * @param timePoints the existing time parameterized profile
+	 * @param profilePoints the profile waypoints
+	 * @param profilePoints2 the profile waypoints to synchronize with the existing profile waypoints
+	 * @param profileTimes the times of the profile waypoints
+	 * @param dt the timestep of the time parameterized profile
+	 * @param hermite if the second profile should use cubic Hermite instead of linear interpolation
+	 * @param angularTimePoints the profile to write the time parameterized second profile into,
+	 * which is resized to fit it
+	 */
+	public static void synchronizedProfileFromProfile(Trajectory timePoints,
+			Trajectory profilePoints, double[] profilePoints2, double[] profileTimes,
+			double dt, boolean hermite, Trajectory angularTimePoints) {
+		angularTimePoints.setLength(timePoints.length);
+		Arrays.fill(angularTimePoints.v, 0, angularTimePoints.length, 0);
+		Arrays.fill(angularTimePoints.a, 0, angularTimePoints.length, 0);
+		double[] x = profilePoints.x;
+		double[] ax = angularTimePoints.x;
+		double[] av = angularTimePoints.v;
+		double[] aa = angularTimePoints.a;
+		
 		// Take the profile points and convert to angular positions
-		double[][] angularTimePoints = new double[timePoints.length][3];
 		for(int i = 0, k = 0;i < timePoints.length;i++) {
 			double t = i * dt;
-			double s = timePoints[i][0];
+			double s = timePoints.x[i];
 			while(profileTimes[k+1] < t) {
 				k++;
 				if(k > profilePoints.length-2) {
@@ -292,27 +799,48 @@ public class ProfileGenerator {
 			
 			// The arc length exactly corresponds with a table value
 			if(t == profileTimes[k]) {
-				angularTimePoints[i][0] = profilePoints2[k];
+				ax[i] = profilePoints2[k];
 			}
 			// Interpolate
+			else if(hermite) {
+				ax[i] = Util.hermiteInterpolate(
+						s,
+						x[k], x[k+1],
+						profilePoints2[k], profilePoints2[k+1],
+						Util.hermiteSlope(x, profilePoints2, k, profilePoints.length),
+						Util.hermiteSlope(x, profilePoints2, k+1, profilePoints.length));
+			}
 			else {
-				angularTimePoints[i][0] = Util.linearInterpolate(
+				ax[i] = Util.linearInterpolate(
 						s,
-						profilePoints[k][0], profilePoints[k+1][0],
+						x[k], x[k+1],
 						profilePoints2[k], profilePoints2[k+1]);
 			}
 		}
-
+		
 		// Take the derivative to fill in the velocities
 		for(int i = 1;i < angularTimePoints.length-1;i++) {
-			angularTimePoints[i][1] = (angularTimePoints[i+1][0] - angularTimePoints[i-1][0]) / dt / 2;
+			av[i] = (ax[i+1] - ax[i-1]) / dt / 2;
 		}
 		
 		// Take the derivative to fill in the accelerations
 		for(int i = 1;i < angularTimePoints.length-1;i++) {
-			angularTimePoints[i][2] = (angularTimePoints[i+1][1] - angularTimePoints[i-1][1]) / dt / 2;
+			aa[i] = (av[i+1] - av[i-1]) / dt / 2;
+		}
+	}
+	
+	/**
+	 * Copies points from columns back into the rows they were read from.
+	 * 
+	 * @param trajectory the profile as columns
+	 * @param rows the profile as rows<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	private static void copyRows(Trajectory trajectory, double[][] rows) {
+		for(int i = 0;i < rows.length;i++) {
+			rows[i][0] = trajectory.x[i];
+			rows[i][1] = trajectory.v[i];
+			rows[i][2] = trajectory.a[i];
 		}
-		
-		return angularTimePoints;
 	}
 }
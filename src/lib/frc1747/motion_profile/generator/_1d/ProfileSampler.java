@@ -0,0 +1,214 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import lib.frc1747.motion_profile.Trajectory;
+
+/**
+ * Finds the state of a timed profile at any time, without generating the time steps.
+ * 
+ * Between each pair of profile waypoints the velocity changes linearly in time,
+ * the same as in {@link TrajectoryCursor}, so the acceleration is constant and the position is exact.
+ * The angle is interpolated by the position between the angles of the waypoints.
+ * 
+ * The waypoint containing a time is found with a binary search,
+ * which is narrowed by an index of the waypoints at evenly spaced times.
+ * {@link #sampleNext(double, double[])} instead continues from the last waypoint,
+ * which is faster when the times only increase, as they do while following the profile.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileSampler {
+	// Profile waypoints
+	private Trajectory profilePoints;
+	private double[] angularProfilePoints;
+	private double[] profileTimes;
+	private int length;
+	
+	// The first waypoint of the pair containing the start of each bucket,
+	// which can have more buckets than are used after moving to a shorter profile
+	private int[] buckets;
+	private int bucketCount;
+	private double bucketTime;
+	
+	// The waypoint used by the last sample
+	private int last;
+	
+	/**
+	 * Creates a sampler over a profile.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 */
+	public ProfileSampler(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes) {
+		buckets = new int[0];
+		reset(profilePoints, angularProfilePoints, profileTimes);
+	}
+	
+	/**
+	 * Moves this sampler to another profile, reusing its index.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 */
+	public void reset(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes) {
+		this.profilePoints = profilePoints;
+		this.angularProfilePoints = angularProfilePoints;
+		this.profileTimes = profileTimes;
+		length = profilePoints.length;
+		last = 0;
+		
+		// One bucket per pair of waypoints, plus one for the end
+		bucketCount = Math.max(length, 1);
+		if(buckets.length < bucketCount+1) {
+			buckets = new int[bucketCount+1];
+		}
+		bucketTime = getDuration() / bucketCount;
+		for(int i = 0, k = 0;i <= bucketCount;i++) {
+			double t = i * bucketTime;
+			while(k < length-2 && profileTimes[k+1] <= t) {
+				k++;
+			}
+			buckets[i] = k;
+		}
+	}
+	
+	/**
+	 * Gets the time taken by the profile.
+	 * 
+	 * @return the time at the last profile waypoint
+	 */
+	public double getDuration() {
+		return length == 0 ? 0 : profileTimes[length-1];
+	}
+	
+	/**
+	 * Finds the pair of profile waypoints that contains a time.
+	 * 
+	 * @param t the time to find
+	 * @return the index of the first waypoint of the pair,
+	 * or the first or last pair if the time is outside the profile
+	 */
+	public int indexOf(double t) {
+		if(length < 2 || !(t > 0)) {
+			return 0;
+		}
+		if(t >= getDuration()) {
+			return length-2;
+		}
+		
+		// Only the waypoints between the buckets at either side can contain the time
+		int bucket = Math.min((int)(t / bucketTime), bucketCount-1);
+		int low = buckets[bucket];
+		int high = buckets[bucket+1];
+		if(profileTimes[low] > t) {
+			low = 0;
+		}
+		if(profileTimes[high+1] <= t) {
+			high = length-2;
+		}
+		while(low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if(profileTimes[middle] <= t) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Finds the state of the profile at any time.
+	 * 
+	 * @param t the time to sample at
+	 * @param state the array to write the state into<br>
+	 * The format is [x, v, a, theta]
+	 */
+	public void sample(double t, double[] state) {
+		last = indexOf(t);
+		interpolate(last, t, state);
+	}
+	
+	/**
+	 * Finds the state of the profile at a time, searching forward from the last sample.
+	 * This is faster than {@link #sample(double, double[])} when each time is just after the last one,
+	 * and falls back to searching the whole profile when it is not.
+	 * 
+	 * @param t the time to sample at
+	 * @param state the array to write the state into<br>
+	 * The format is [x, v, a, theta]
+	 */
+	public void sampleNext(double t, double[] state) {
+		if(length >= 2 && last < length-1 && profileTimes[last] <= t) {
+			while(last < length-2 && profileTimes[last+1] <= t) {
+				last++;
+			}
+		}
+		else {
+			last = indexOf(t);
+		}
+		interpolate(last, t, state);
+	}
+	
+	/**
+	 * Finds the state of the profile between a pair of waypoints.
+	 * 
+	 * @param k the first waypoint of the pair
+	 * @param t the time to sample at
+	 * @param state the array to write the state into
+	 */
+	private void interpolate(int k, double t, double[] state) {
+		double[] x = profilePoints.x;
+		double[] v = profilePoints.v;
+		
+		// Hold the ends of the profile
+		if(length < 2 || !(t > profileTimes[0])) {
+			hold(length == 0 ? -1 : 0, state);
+			return;
+		}
+		if(t >= profileTimes[length-1]) {
+			hold(length-1, state);
+			return;
+		}
+		
+		double tau = t - profileTimes[k];
+		double duration = profileTimes[k+1] - profileTimes[k];
+		double acceleration = duration > 0 ? (v[k+1] - v[k]) / duration : 0;
+		double position = x[k] + v[k]*tau + acceleration*tau*tau/2;
+		state[0] = position;
+		state[1] = v[k] + acceleration*tau;
+		state[2] = acceleration;
+		
+		double distance = x[k+1] - x[k];
+		if(distance == 0) {
+			state[3] = angularProfilePoints[k];
+		}
+		else {
+			double fraction = Math.min(Math.max((position - x[k]) / distance, 0), 1);
+			state[3] = angularProfilePoints[k] + (angularProfilePoints[k+1] - angularProfilePoints[k]) * fraction;
+		}
+	}
+	
+	/**
+	 * Writes the state of a waypoint with no acceleration.
+	 * 
+	 * @param i the waypoint to hold, or -1 for an empty profile
+	 * @param state the array to write the state into
+	 */
+	private void hold(int i, double[] state) {
+		if(i < 0) {
+			state[0] = 0;
+			state[1] = 0;
+			state[3] = 0;
+		}
+		else {
+			state[0] = profilePoints.x[i];
+			state[1] = profilePoints.v[i];
+			state[3] = angularProfilePoints[i];
+		}
+		state[2] = 0;
+	}
+}
@@ -0,0 +1,175 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.gui._1d.BoxcarFilter;
+
+/**
+ * Holds the buffers used by every stage of profile generation so they can be reused.
+ * 
+ * The buffers grow as needed and are never shrunk, so once a profile has been generated,
+ * generating another profile of the same size or smaller does not allocate any memory.
+ * The profiles returned by a workspace are overwritten by the next generation.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class ProfileWorkspace {
+	private SegmentBuffer profileSegments;
+	private Trajectory profilePoints;
+	private double[] angularProfilePoints;
+	private double[] profileTimes;
+	private int[] cusps;
+	private Trajectory unfilteredTimePoints;
+	private Trajectory unfilteredAngularTimePoints;
+	private Trajectory timePoints;
+	private Trajectory angularTimePoints;
+	
+	/**
+	 * Creates a workspace with empty buffers.
+	 */
+	public ProfileWorkspace() {
+		profileSegments = new SegmentBuffer(0);
+		profilePoints = new Trajectory(0);
+		angularProfilePoints = new double[0];
+		profileTimes = new double[0];
+		cusps = new int[0];
+		unfilteredTimePoints = new Trajectory(0);
+		unfilteredAngularTimePoints = new Trajectory(0);
+		timePoints = new Trajectory(0);
+		angularTimePoints = new Trajectory(0);
+	}
+	
+	/**
+	 * Gets the buffer that holds the path to generate a profile for.
+	 * This should be filled in before calling {@link #generate}, for example with
+	 * {@link lib.frc1747.motion_profile.generator._2d.SplineGenerator#flattenProfile(
+	 * lib.frc1747.motion_profile.generator._2d.QuinticBezier[], int, double, SegmentBuffer)}.
+	 * 
+	 * @return the path to generate a profile for
+	 */
+	public SegmentBuffer getProfileSegments() {
+		return profileSegments;
+	}
+	
+	/**
+	 * Generates the translational and rotational profiles for the path in the workspace.
+	 * 
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param jmax the max jerk in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param dt the timestep of the time parameterized profiles
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 */
+	public void generate(double[][] waypointLimits,
+			double vmax, double amax, double jmax, double wwidth, double dt,
+			boolean zeroStart, boolean zeroEnd) {
+		generate(waypointLimits, vmax, amax, jmax, wwidth, dt, zeroStart, zeroEnd, false);
+	}
+	
+	/**
+	 * Generates the translational and rotational profiles for the path in the workspace.
+	 * 
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param jmax the max jerk in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param dt the timestep of the time parameterized profiles
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 * @param hermite if the velocity and angle should be resampled with cubic Hermite
+	 * instead of linear interpolation
+	 */
+	public void generate(double[][] waypointLimits,
+			double vmax, double amax, double jmax, double wwidth, double dt,
+			boolean zeroStart, boolean zeroEnd, boolean hermite) {
+		int length = profileSegments.length;
+		angularProfilePoints = ensureCapacity(angularProfilePoints, length+1);
+		profileTimes = ensureCapacity(profileTimes, length+1);
+		if(cusps.length < length) {
+			cusps = new int[Math.max(length, cusps.length + cusps.length/2)];
+		}
+		
+		ProfileGenerator.primaryProfileIntegrate(profileSegments, profilePoints);
+		ProfileGenerator.secondaryProfileIntegrate(profileSegments, angularProfilePoints);
+		ProfileGenerator.skidSteerLimitVelocities(profilePoints, profileSegments, vmax, amax, wwidth);
+		ProfileGenerator.applyWaypointLimits(profilePoints, waypointLimits);
+		
+		// The robot must stop to change directions
+		int cuspCount = SegmentedProfileGenerator.findCusps(profileSegments, cusps);
+		for(int i = 0;i < cuspCount;i++) {
+			profilePoints.v[cusps[i]] = 0;
+			profilePoints.a[cusps[i]] = 0;
+		}
+		
+		// Force the max everything at the endpoints of the profile to zero
+		if(zeroStart) {
+			profilePoints.v[0] = 0;
+			profilePoints.a[0] = 0;
+		}
+		if(zeroEnd) {
+			profilePoints.v[length] = 0;
+			profilePoints.a[length] = 0;
+		}
+		
+		ProfileGenerator.sweepLimitVelocities(profilePoints);
+		ProfileGenerator.timesFromPoints(profilePoints, profileTimes);
+		ProfileGenerator.profileFromPoints(profilePoints, profileTimes, dt, hermite, unfilteredTimePoints);
+		ProfileGenerator.synchronizedProfileFromProfile(unfilteredTimePoints,
+				profilePoints, angularProfilePoints, profileTimes, dt, hermite,
+				unfilteredAngularTimePoints);
+		
+		// Limit the maximum jerk
+		int filterLength = (int)Math.ceil(amax/jmax/dt);
+		BoxcarFilter.multiFilter(unfilteredTimePoints, filterLength, timePoints);
+		BoxcarFilter.multiFilter(unfilteredAngularTimePoints, filterLength, angularTimePoints);
+	}
+	
+	/**
+	 * Gets the limited profile waypoints of the last generation.
+	 * 
+	 * @return the limited profile waypoints
+	 */
+	public Trajectory getProfilePoints() {
+		return profilePoints;
+	}
+	
+	/**
+	 * Gets the time at each profile waypoint of the last generation.
+	 * Only the first {@code getProfilePoints().length} values are used.
+	 * 
+	 * @return the time at each profile waypoint
+	 */
+	public double[] getProfileTimes() {
+		return profileTimes;
+	}
+	
+	/**
+	 * Gets the translational profile of the last generation.
+	 * 
+	 * @return the jerk limited, time parameterized translational profile
+	 */
+	public Trajectory getTimePoints() {
+		return timePoints;
+	}
+	
+	/**
+	 * Gets the rotational profile of the last generation.
+	 * 
+	 * @return the jerk limited, time parameterized rotational profile
+	 */
+	public Trajectory getAngularTimePoints() {
+		return angularTimePoints;
+	}
+	
+	private static double[] ensureCapacity(double[] array, int length) {
+		if(array.length >= length) return array;
+		return new double[Math.max(length, array.length + array.length/2)];
+	}
+}
@@ -0,0 +1,339 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+
+/**
+ * Time parameterizes profiles by splitting them into independent segments
+ * and processing the segments in parallel.
+ * 
+ * A profile is split wherever the robot must come to a stop: at cusps, where the
+ * direction of travel reverses, and at points whose velocity is limited to zero.
+ * Velocity limiting never propagates through a stopped point, so each segment
+ * gives the same result as processing the whole profile at once.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class SegmentedProfileGenerator {
+	private ForkJoinPool pool;
+	
+	/**
+	 * Creates a SegmentedProfileGenerator that uses the common fork-join pool.
+	 */
+	public SegmentedProfileGenerator() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a SegmentedProfileGenerator that uses the specified fork-join pool.
+	 * 
+	 * @param pool the pool to run the segments on
+	 */
+	public SegmentedProfileGenerator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * Finds the profile points at which the direction of travel reverses.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @return the indices of the profile points at the cusps
+	 */
+	public static int[] findCusps(double[][] profileSegments) {
+		return findCusps(SegmentBuffer.fromRows(profileSegments));
+	}
+	
+	/**
+	 * Finds the profile points at which the direction of travel reverses.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @return the indices of the profile points at the cusps
+	 */
+	public static int[] findCusps(SegmentBuffer profileSegments) {
+		int[] cusps = new int[profileSegments.length];
+		return trim(cusps, findCusps(profileSegments, cusps));
+	}
+	
+	/**
+	 * Finds the profile points at which the direction of travel reverses, without allocating any memory.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param cusps the array to write the indices of the profile points at the cusps into,
+	 * which must be at least as long as the number of segments
+	 * @return the number of cusps
+	 */
+	public static int findCusps(SegmentBuffer profileSegments, int[] cusps) {
+		double[] ds = profileSegments.ds;
+		int count = 0;
+		for(int i = 1;i < profileSegments.length;i++) {
+			if(ds[i-1] * ds[i] < 0) {
+				cusps[count++] = i;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Finds the profile points that split the profile into independent segments.
+	 * These are the first and last points, and every point with a zero velocity limit.
+	 * 
+	 * @param profilePoints the profile waypoints and limits<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @return the indices of the segment boundaries in increasing order
+	 */
+	public static int[] findBoundaries(double[][] profilePoints) {
+		return findBoundaries(Trajectory.fromRows(profilePoints));
+	}
+	
+	/**
+	 * Finds the profile points that split the profile into independent segments.
+	 * These are the first and last points, and every point with a zero velocity limit.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @return the indices of the segment boundaries in increasing order
+	 */
+	public static int[] findBoundaries(Trajectory profilePoints) {
+		double[] v = profilePoints.v;
+		int count = 0;
+		int[] boundaries = new int[profilePoints.length];
+		boundaries[count++] = 0;
+		for(int i = 1;i < profilePoints.length-1;i++) {
+			if(v[i] == 0) {
+				boundaries[count++] = i;
+			}
+		}
+		boundaries[count++] = profilePoints.length-1;
+		return trim(boundaries, count);
+	}
+	
+	/**
+	 * Creates the velocity and acceleration limited profile waypoints from the profile differences.
+	 * This combines integration, skid steer limiting, per waypoint limits, and velocity limiting.
+	 * The velocity at each cusp is forced to zero.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 * @return the limited profile waypoints<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	public double[][] limitedPointsFromSegments(double[][] profileSegments, double[][] waypointLimits,
+			double vmax, double amax, double wwidth,
+			boolean zeroStart, boolean zeroEnd) {
+		return limitedPointsFromSegments(SegmentBuffer.fromRows(profileSegments), waypointLimits,
+				vmax, amax, wwidth, zeroStart, zeroEnd).toRows();
+	}
+	
+	/**
+	 * Creates the velocity and acceleration limited profile waypoints from the profile differences.
+	 * This combines integration, skid steer limiting, per waypoint limits, and velocity limiting.
+	 * The velocity at each cusp is forced to zero.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param wwidth the track width of the robot
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 * @return the limited profile waypoints
+	 */
+	public Trajectory limitedPointsFromSegments(SegmentBuffer profileSegments, double[][] waypointLimits,
+			double vmax, double amax, double wwidth,
+			boolean zeroStart, boolean zeroEnd) {
+		Trajectory profilePoints = ProfileGenerator.primaryProfileIntegrate(profileSegments);
+		
+		// Skid steer limits only depend on the neighboring segments, so split at the cusps
+		int[] cusps = findCusps(profileSegments);
+		int[] ranges = new int[cusps.length + 2];
+		ranges[0] = 0;
+		System.arraycopy(cusps, 0, ranges, 1, cusps.length);
+		ranges[ranges.length-1] = profilePoints.length;
+		invokeAll(ranges.length-1, segment -> {
+			ProfileGenerator.skidSteerLimitVelocities(profilePoints, profileSegments,
+					vmax, amax, wwidth, ranges[segment], ranges[segment+1]);
+		});
+		
+		ProfileGenerator.applyWaypointLimits(profilePoints, waypointLimits);
+		
+		// The robot must stop to change directions
+		for(int i = 0;i < cusps.length;i++) {
+			profilePoints.v[cusps[i]] = 0;
+			profilePoints.a[cusps[i]] = 0;
+		}
+		
+		// Force the max everything at the endpoints of the profile to zero
+		if(zeroStart) {
+			profilePoints.v[0] = 0;
+			profilePoints.a[0] = 0;
+		}
+		if(zeroEnd) {
+			profilePoints.v[profilePoints.length-1] = 0;
+			profilePoints.a[profilePoints.length-1] = 0;
+		}
+		
+		// Each point is shared by the segments on either side of it,
+		// which is safe because stopped points are never changed
+		int[] boundaries = findBoundaries(profilePoints);
+		invokeAll(boundaries.length-1, segment -> {
+			ProfileGenerator.sweepLimitVelocities(profilePoints,
+					boundaries[segment], boundaries[segment+1]+1);
+		});
+		
+		return profilePoints;
+	}
+	
+	/**
+	 * Determines the time for each profile waypoint.
+	 * 
+	 * @param profilePoints the profile waypoints<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @return the time at each profile waypoint as an array
+	 */
+	public double[] timesFromPoints(double[][] profilePoints) {
+		return timesFromPoints(Trajectory.fromRows(profilePoints));
+	}
+	
+	/**
+	 * Determines the time for each profile waypoint.
+	 * 
+	 * @param profilePoints the profile waypoints
+	 * @return the time at each profile waypoint as an array
+	 */
+	public double[] timesFromPoints(Trajectory profilePoints) {
+		double[] profileTimes = new double[profilePoints.length];
+		int[] boundaries = findBoundaries(profilePoints);
+		
+		// Time each segment from its own start
+		invokeAll(boundaries.length-1, segment -> {
+			ProfileGenerator.timesFromPoints(profilePoints, profileTimes,
+					boundaries[segment], boundaries[segment+1]+1);
+		});
+		
+		// Find the start time of each segment
+		double[] offsets = new double[boundaries.length];
+		for(int i = 1;i < boundaries.length;i++) {
+			offsets[i] = offsets[i-1] + profileTimes[boundaries[i]];
+		}
+		
+		// Shift each segment to its start time
+		invokeAll(boundaries.length-1, segment -> {
+			for(int i = boundaries[segment]+1;i <= boundaries[segment+1];i++) {
+				profileTimes[i] += offsets[segment];
+			}
+		});
+		
+		return profileTimes;
+	}
+	
+	/**
+	 * Creates a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * @param profilePoints the profile waypoints and limits<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the desired timestep of the time parameterized profile
+	 * @return a time parameterized profile<br>
+	 * The format is [x0, v0, a0; x1, v1, a1; ...]
+	 */
+	public double[][] profileFromPoints(double[][] profilePoints, double[] profileTimes, double dt) {
+		return profileFromPoints(Trajectory.fromRows(profilePoints), profileTimes, dt).toRows();
+	}
+	
+	/**
+	 * Creates a time parameterized profile from 1D profile waypoints.
+	 * 
+	 * @param profilePoints the profile waypoints and limits
+	 * @param profileTimes the time at each waypoint
+	 * @param dt the desired timestep of the time parameterized profile
+	 * @return a time parameterized profile
+	 */
+	public Trajectory profileFromPoints(Trajectory profilePoints, double[] profileTimes, double dt) {
+		double profileTime = profileTimes[profilePoints.length-1];
+		Trajectory timePoints = new Trajectory((int)Math.ceil(profileTime / dt));
+		int[] boundaries = findBoundaries(profilePoints);
+		
+		// Find the first time step that falls after the start of each segment
+		int[] starts = new int[boundaries.length];
+		for(int i = 1;i < boundaries.length-1;i++) {
+			double t = profileTimes[boundaries[i]];
+			int j = Math.max((int)(t / dt), starts[i-1]);
+			while(j * dt <= t) j++;
+			while(j > starts[i-1] && (j-1) * dt > t) j--;
+			starts[i] = Math.min(j, timePoints.length);
+		}
+		starts[boundaries.length-1] = timePoints.length;
+		
+		invokeAll(boundaries.length-1, segment -> {
+			ProfileGenerator.sampleVelocities(profilePoints, profileTimes, dt, false, timePoints,
+					starts[segment], starts[segment+1], boundaries[segment]);
+		});
+		ProfileGenerator.integrateVelocities(timePoints, dt);
+		
+		return timePoints;
+	}
+	
+	/**
+	 * Work done on a single segment.
+	 */
+	private interface SegmentTask {
+		void run(int segment);
+	}
+	
+	/**
+	 * Runs a task for each segment on the pool and waits for all of them to finish.
+	 * Single segments are run on the calling thread.
+	 * 
+	 * @param count the number of segments
+	 * @param task the task to run on each segment
+	 */
+	private void invokeAll(int count, SegmentTask task) {
+		if(count == 1) {
+			task.run(0);
+			return;
+		}
+		
+		List<Callable<Void>> tasks = new ArrayList<>(count);
+		for(int i = 0;i < count;i++) {
+			int segment = i;
+			tasks.add(() -> {
+				task.run(segment);
+				return null;
+			});
+		}
+		try {
+			for(Future<Void> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		}
+		catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+	
+	private static int[] trim(int[] array, int length) {
+		int[] trimmed = new int[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+}
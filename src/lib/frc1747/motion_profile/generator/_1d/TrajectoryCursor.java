@@ -0,0 +1,320 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.Util;
+
+/**
+ * Produces the jerk filtered, time parameterized profile one time step at a time.
+ * 
+ * This gives the same profiles as {@link ProfileGenerator#profileFromPoints(Trajectory, double[], double)},
+ * {@link ProfileGenerator#synchronizedProfileFromProfile(Trajectory, Trajectory, double[], double[], double)}
+ * and the boxcar filter, but only works out each time step when it is asked for.
+ * Apart from the profile waypoints, only a few time steps and the boxcar filter are kept in memory,
+ * so a follower can start driving as soon as the waypoints are timed.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class TrajectoryCursor {
+	// Profile waypoints
+	private Trajectory profilePoints;
+	private double[] angularProfilePoints;
+	private double[] profileTimes;
+	private double dt;
+	private int count;
+	private int filterLength;
+	private boolean hermite;
+	
+	// Position along the waypoints
+	private int k;
+	private boolean done;
+	
+	// The last few unfiltered time steps
+	private int sampled;
+	private double[] sampleX;
+	private double[] sampleV;
+	private double[] sampleTheta;
+	private double previousOmega;
+	
+	// Boxcar filters, in the order x, v, a, theta, omega, alpha
+	private int index;
+	private double[][] filterWindows;
+	private double[] filterSums;
+	
+	/**
+	 * Creates a cursor at the start of a profile.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 * @param dt the timestep of the time parameterized profile
+	 * @param filterLength the length of the boxcar filter to use
+	 */
+	public TrajectoryCursor(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes,
+			double dt, int filterLength) {
+		this(profilePoints, angularProfilePoints, profileTimes, dt, filterLength, false);
+	}
+	
+	/**
+	 * Creates a cursor at the start of a profile.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 * @param dt the timestep of the time parameterized profile
+	 * @param filterLength the length of the boxcar filter to use
+	 * @param hermite if the velocity and angle should use cubic Hermite instead of linear interpolation
+	 */
+	public TrajectoryCursor(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes,
+			double dt, int filterLength, boolean hermite) {
+		sampleX = new double[4];
+		sampleV = new double[4];
+		sampleTheta = new double[4];
+		filterWindows = new double[6][0];
+		filterSums = new double[6];
+		reset(profilePoints, angularProfilePoints, profileTimes, dt, filterLength, hermite);
+	}
+	
+	/**
+	 * Moves this cursor to the start of a profile, reusing its buffers.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 * @param dt the timestep of the time parameterized profile
+	 * @param filterLength the length of the boxcar filter to use
+	 */
+	public void reset(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes,
+			double dt, int filterLength) {
+		reset(profilePoints, angularProfilePoints, profileTimes, dt, filterLength, false);
+	}
+	
+	/**
+	 * Moves this cursor to the start of a profile, reusing its buffers.
+	 * 
+	 * @param profilePoints the limited profile waypoints
+	 * @param angularProfilePoints the angle at each profile waypoint
+	 * @param profileTimes the time at each profile waypoint
+	 * @param dt the timestep of the time parameterized profile
+	 * @param filterLength the length of the boxcar filter to use
+	 * @param hermite if the velocity and angle should use cubic Hermite instead of linear interpolation
+	 */
+	public void reset(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes,
+			double dt, int filterLength, boolean hermite) {
+		this.profilePoints = profilePoints;
+		this.angularProfilePoints = angularProfilePoints;
+		this.profileTimes = profileTimes;
+		this.dt = dt;
+		this.filterLength = filterLength;
+		this.hermite = hermite;
+		count = (int)Math.ceil(profileTimes[profilePoints.length-1] / dt);
+		
+		k = 0;
+		done = false;
+		sampled = 0;
+		previousOmega = 0;
+		index = 0;
+		if(filterWindows[0].length != filterLength) {
+			for(int i = 0;i < filterWindows.length;i++) {
+				filterWindows[i] = new double[filterLength];
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of time steps in the filtered profile.
+	 * 
+	 * @return the number of time steps
+	 */
+	public int getLength() {
+		return count == 0 ? 0 : count + filterLength - 1;
+	}
+	
+	/**
+	 * Gets the time step that the next call to {@link #next} will produce.
+	 * 
+	 * @return the index of the next time step
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Checks if there are any time steps left.
+	 * 
+	 * @return if there are any time steps left
+	 */
+	public boolean hasNext() {
+		return index < getLength();
+	}
+	
+	/**
+	 * Produces the next time step of the translational and rotational profiles.
+	 * 
+	 * @param timePoint the array to write the translational time step into<br>
+	 * The format is [x, v, a]
+	 * @param angularTimePoint the array to write the rotational time step into<br>
+	 * The format is [x, v, a]
+	 */
+	public void next(double[] timePoint, double[] angularTimePoint) {
+		if(!hasNext()) {
+			throw new NoSuchElementException("The profile has " + getLength() + " time steps");
+		}
+		
+		if(index < count) {
+			// The derivatives of a time step need the two time steps after it
+			while(sampled <= Math.min(index+2, count-1)) {
+				sample();
+			}
+			differentiate(timePoint, angularTimePoint);
+		}
+		// Hold the last time step until the filter empties
+		else {
+			int last = (count-1) % filterLength;
+			timePoint[0] = filter(0, filterWindows[0][last]);
+			timePoint[1] = filter(1, filterWindows[1][last]);
+			timePoint[2] = filter(2, filterWindows[2][last]);
+			angularTimePoint[0] = filter(3, filterWindows[3][last]);
+			angularTimePoint[1] = filter(4, filterWindows[4][last]);
+			angularTimePoint[2] = filter(5, filterWindows[5][last]);
+		}
+		index++;
+	}
+	
+	/**
+	 * Finds the unfiltered position, velocity and angle of the next time step.
+	 */
+	private void sample() {
+		int i = sampled;
+		double t = i * dt;
+		double[] x = profilePoints.x;
+		double[] v = profilePoints.v;
+		
+		if(!done) {
+			while(profileTimes[k+1] < t) {
+				k++;
+				// Past the last point, so hold the last pair of points
+				if(k > profilePoints.length-2) {
+					k = profilePoints.length-2;
+					done = true;
+					break;
+				}
+			}
+		}
+		
+		// Interpolate the velocity, then integrate it
+		double velocity;
+		if(done) {
+			velocity = 0;
+		}
+		else if(t == profileTimes[k]) {
+			velocity = v[k];
+		}
+		else if(hermite) {
+			velocity = Util.hermiteInterpolate(
+					t,
+					profileTimes[k], profileTimes[k+1],
+					v[k], v[k+1],
+					Util.hermiteSlope(profileTimes, v, k, profilePoints.length),
+					Util.hermiteSlope(profileTimes, v, k+1, profilePoints.length));
+		}
+		else {
+			velocity = Util.linearInterpolate(
+					t,
+					profileTimes[k], profileTimes[k+1],
+					v[k], v[k+1]);
+		}
+		double position = 0;
+		if(i > 0) {
+			position = sampleX[(i-1) & 3] + (sampleV[(i-1) & 3] + velocity)/2 * dt;
+		}
+		
+		// Find the angle at the same arc length
+		double angle;
+		if(t == profileTimes[k]) {
+			angle = angularProfilePoints[k];
+		}
+		else if(hermite) {
+			angle = Util.hermiteInterpolate(
+					position,
+					x[k], x[k+1],
+					angularProfilePoints[k], angularProfilePoints[k+1],
+					Util.hermiteSlope(x, angularProfilePoints, k, profilePoints.length),
+					Util.hermiteSlope(x, angularProfilePoints, k+1, profilePoints.length));
+		}
+		else {
+			angle = Util.linearInterpolate(
+					position,
+					x[k], x[k+1],
+					angularProfilePoints[k], angularProfilePoints[k+1]);
+		}
+		
+		sampleX[i & 3] = position;
+		sampleV[i & 3] = velocity;
+		sampleTheta[i & 3] = angle;
+		sampled++;
+	}
+	
+	/**
+	 * Finds the derivatives of the current time step from the time steps around it, then filters it.
+	 * The derivatives at the first and last time steps are zero.
+	 */
+	private void differentiate(double[] timePoint, double[] angularTimePoint) {
+		int i = index;
+		double a = 0;
+		double omega = 0;
+		double alpha = 0;
+		if(i >= 1 && i < count-1) {
+			a = (sampleV[(i+1) & 3] - sampleV[(i-1) & 3]) / dt / 2;
+			omega = (sampleTheta[(i+1) & 3] - sampleTheta[(i-1) & 3]) / dt / 2;
+			double nextOmega = 0;
+			if(i+1 < count-1) {
+				nextOmega = (sampleTheta[(i+2) & 3] - sampleTheta[i & 3]) / dt / 2;
+			}
+			alpha = (nextOmega - previousOmega) / dt / 2;
+		}
+		previousOmega = omega;
+		
+		timePoint[0] = filter(0, sampleX[i & 3]);
+		timePoint[1] = filter(1, sampleV[i & 3]);
+		timePoint[2] = filter(2, a);
+		angularTimePoint[0] = filter(3, sampleTheta[i & 3]);
+		angularTimePoint[1] = filter(4, omega);
+		angularTimePoint[2] = filter(5, alpha);
+	}
+	
+	/**
+	 * Adds a value for the current time step to a boxcar filter that is kept as a running sum.
+	 * Before the first value, the filter is treated as full of the first value.
+	 * The window is summed again from scratch every filter length time steps, including the last one,
+	 * the same as {@link lib.frc1747.motion_profile.gui._1d.BoxcarFilter}, so rounding errors cannot build up.
+	 * 
+	 * @param column the filter to add to
+	 * @param value the value
+	 * @return the filtered value
+	 */
+	private double filter(int column, double value) {
+		double[] window = filterWindows[column];
+		int slot = index % filterLength;
+		if(index == 0) {
+			Arrays.fill(window, value);
+			filterSums[column] = value * filterLength;
+		}
+		else {
+			filterSums[column] += value - window[slot];
+			window[slot] = value;
+		}
+		if((getLength() - 1 - index) % filterLength == 0) {
+			// Sum from the oldest sample to the newest
+			double sum = 0;
+			for(int k = slot + 1;k <= slot + filterLength;k++) {
+				sum += window[k < filterLength ? k : k - filterLength];
+			}
+			filterSums[column] = sum;
+		}
+		return filterSums[column] / filterLength;
+	}
+}
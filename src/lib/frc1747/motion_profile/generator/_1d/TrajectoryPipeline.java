@@ -0,0 +1,393 @@
+package lib.frc1747.motion_profile.generator._1d;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.Util;
+
+/**
+ * Generates translational and rotational profiles from a flattened path in three passes.
+ * 
+ * This does the same work as calling each stage of {@link ProfileGenerator} and the boxcar filter in turn,
+ * but combines stages that walk the profile in the same direction:
+ * <ol>
+ * <li>Forward over the points: integration, skid steer limits, waypoint limits, cusps,
+ * and the forward half of velocity limiting</li>
+ * <li>Backward over the points: the backward half of velocity limiting and timing</li>
+ * <li>Forward over the time steps with a {@link TrajectoryCursor}: resampling, differentiation,
+ * angular synchronization, and jerk filtering</li>
+ * </ol>
+ * The settings are chained, for example
+ * {@code new TrajectoryPipeline().setLimits(vmax, amax, jmax).setTimestep(dt).generate(segments)}.
+ * Buffers are reused between generations, so the returned profiles are overwritten by the next generation.
+ * {@link #stream(SegmentBuffer)} stops before the last pass and returns the cursor instead,
+ * so the time steps can be used as they are worked out without holding the whole profile.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class TrajectoryPipeline {
+	// Settings
+	private double vmax;
+	private double amax;
+	private double jmax;
+	private double wwidth;
+	private double dt;
+	private double[][] waypointLimits;
+	private boolean zeroStart;
+	private boolean zeroEnd;
+	private boolean hermite;
+	
+	// Per point buffers
+	private Trajectory profilePoints;
+	private double[] angles;
+	private double[] profileTimes;
+	private int[] cusps;
+	
+	// Outputs
+	private TrajectoryCursor cursor;
+	private ProfileSampler sampler;
+	private double[] timePoint;
+	private double[] angularTimePoint;
+	private Trajectory timePoints;
+	private Trajectory angularTimePoints;
+	
+	/**
+	 * Creates a pipeline using the default parameters in {@link Parameters},
+	 * with the start and end velocities forced to zero.
+	 */
+	public TrajectoryPipeline() {
+		vmax = Parameters.V_MAX;
+		amax = Parameters.A_MAX;
+		jmax = Parameters.J_MAX;
+		wwidth = Parameters.W_WIDTH;
+		dt = Parameters.DT;
+		zeroStart = true;
+		zeroEnd = true;
+		
+		profilePoints = new Trajectory(0);
+		angles = new double[0];
+		profileTimes = new double[0];
+		cusps = new int[0];
+		timePoint = new double[3];
+		angularTimePoint = new double[3];
+		timePoints = new Trajectory(0);
+		angularTimePoints = new Trajectory(0);
+	}
+	
+	/**
+	 * Sets the translational limits.
+	 * 
+	 * @param vmax the max velocity in a straight line
+	 * @param amax the max acceleration in a straight line
+	 * @param jmax the max jerk in a straight line
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setLimits(double vmax, double amax, double jmax) {
+		this.vmax = vmax;
+		this.amax = amax;
+		this.jmax = jmax;
+		return this;
+	}
+	
+	/**
+	 * Sets the track width of the robot.
+	 * 
+	 * @param wwidth the track width of the robot
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setWheelbaseWidth(double wwidth) {
+		this.wwidth = wwidth;
+		return this;
+	}
+	
+	/**
+	 * Sets the timestep of the time parameterized profiles.
+	 * 
+	 * @param dt the timestep
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setTimestep(double dt) {
+		this.dt = dt;
+		return this;
+	}
+	
+	/**
+	 * Sets the per waypoint limits.
+	 * 
+	 * @param waypointLimits the limits at each waypoint, or null if there are none<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setWaypointLimits(double[][] waypointLimits) {
+		this.waypointLimits = waypointLimits;
+		return this;
+	}
+	
+	/**
+	 * Sets if the velocity and acceleration at the start should be zero.
+	 * 
+	 * @param zeroStart if the velocity and acceleration at the start should be zero
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setZeroStart(boolean zeroStart) {
+		this.zeroStart = zeroStart;
+		return this;
+	}
+	
+	/**
+	 * Sets if the velocity and acceleration at the end should be zero.
+	 * 
+	 * @param zeroEnd if the velocity and acceleration at the end should be zero
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setZeroEnd(boolean zeroEnd) {
+		this.zeroEnd = zeroEnd;
+		return this;
+	}
+	
+	/**
+	 * Sets if the velocity and angle should be resampled with cubic Hermite instead of linear interpolation.
+	 * This keeps the profiles smooth with a longer sample length between the segments.
+	 * 
+	 * @param hermite if cubic Hermite interpolation should be used
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline setHermite(boolean hermite) {
+		this.hermite = hermite;
+		return this;
+	}
+	
+	/**
+	 * Generates the translational and rotational profiles for a path.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline generate(double[][] profileSegments) {
+		return generate(SegmentBuffer.fromRows(profileSegments));
+	}
+	
+	/**
+	 * Generates the translational and rotational profiles for a path.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @return this pipeline
+	 */
+	public TrajectoryPipeline generate(SegmentBuffer profileSegments) {
+		timeSegments(profileSegments);
+		resample();
+		
+		return this;
+	}
+	
+	/**
+	 * Times the points of a path, and returns a cursor over the time steps of the translational and rotational
+	 * profiles instead of generating them.
+	 * {@link #getTimePoints()} and {@link #getAngularTimePoints()} are not updated.
+	 * The same cursor is moved to each new generation.
+	 * 
+	 * @param profileSegments the differences in translation and rotation between each time instant
+	 * @return the cursor at the first time step
+	 */
+	public TrajectoryCursor stream(SegmentBuffer profileSegments) {
+		timeSegments(profileSegments);
+		return resetCursor();
+	}
+	
+	/**
+	 * Gets the translational profile of the last generation.
+	 * 
+	 * @return the jerk limited, time parameterized translational profile
+	 */
+	public Trajectory getTimePoints() {
+		return timePoints;
+	}
+	
+	/**
+	 * Gets the rotational profile of the last generation.
+	 * 
+	 * @return the jerk limited, time parameterized rotational profile
+	 */
+	public Trajectory getAngularTimePoints() {
+		return angularTimePoints;
+	}
+	
+	/**
+	 * Gets the duration of the last generation before jerk filtering.
+	 * 
+	 * @return the time taken to follow the path
+	 */
+	public double getProfileTime() {
+		return profileTimes[profilePoints.length-1];
+	}
+	
+	/**
+	 * Gets a sampler over the profile waypoints of the last generation,
+	 * which finds the unfiltered state at any time.
+	 * The same sampler is moved to each new generation.
+	 * 
+	 * @return the sampler over the last generation
+	 */
+	public ProfileSampler getSampler() {
+		if(sampler == null) {
+			sampler = new ProfileSampler(profilePoints, angles, profileTimes);
+		}
+		else {
+			sampler.reset(profilePoints, angles, profileTimes);
+		}
+		return sampler;
+	}
+	
+	/**
+	 * Runs the first two passes, leaving the timed points ready to be resampled.
+	 */
+	private void timeSegments(SegmentBuffer profileSegments) {
+		int length = profileSegments.length;
+		profilePoints.setLength(length+1);
+		if(angles.length < length+1) {
+			int capacity = Math.max(length+1, angles.length + angles.length/2);
+			angles = new double[capacity];
+			profileTimes = new double[capacity];
+			cusps = new int[capacity];
+		}
+		
+		limitPoints(profileSegments);
+		timePoints();
+	}
+	
+	/**
+	 * Integrates the segments and finds the limits of each point,
+	 * then limits each point by the point before it.
+	 */
+	private void limitPoints(SegmentBuffer profileSegments) {
+		double[] ds = profileSegments.ds;
+		double[] dtheta = profileSegments.dtheta;
+		int length = profileSegments.length;
+		double[] positions = profilePoints.x;
+		double[] velocities = profilePoints.v;
+		double[] accelerations = profilePoints.a;
+		int cuspCount = SegmentedProfileGenerator.findCusps(profileSegments, cusps);
+		
+		double previousV = 0;
+		double previousA = 0;
+		for(int i = 0, j = 0, k = 0;i <= length;i++) {
+			// Integrate
+			if(i == 0) {
+				positions[i] = 0;
+				angles[i] = 0;
+			}
+			else {
+				positions[i] = positions[i-1] + ds[i-1];
+				angles[i] = angles[i-1] + dtheta[i-1];
+			}
+			
+			// Skid steer limits of the segment starting at this point
+			double v = previousV;
+			double a = previousA;
+			if(i < length) {
+				double scale = ProfileGenerator.skidSteerScale(profileSegments, wwidth, i);
+				v = vmax/scale * ProfileGenerator.skidSteerDirection(profileSegments, i);
+				a = amax/scale;
+			}
+			
+			// Move the limits onto the point
+			if(i == 0 || i == length) {
+				velocities[i] = v;
+				accelerations[i] = a;
+			}
+			else {
+				velocities[i] = (v + previousV)/2;
+				accelerations[i] = (a + previousA)/2;
+			}
+			previousV = v;
+			previousA = a;
+			
+			// Apply per point limits
+			if(	waypointLimits != null && j < waypointLimits.length &&
+				Math.abs(waypointLimits[j][0] - positions[i]) < 1E-3) {
+				ProfileGenerator.applyWaypointLimit(profilePoints, waypointLimits[j], i);
+				j++;
+			}
+			
+			// The robot must stop to change directions
+			if(k < cuspCount && cusps[k] == i) {
+				velocities[i] = 0;
+				accelerations[i] = 0;
+				k++;
+			}
+			
+			// Force the max everything at the endpoints of the profile to zero
+			if((zeroStart && i == 0) || (zeroEnd && i == length)) {
+				velocities[i] = 0;
+				accelerations[i] = 0;
+			}
+			
+			// Limit by the previous point
+			if(i > 0) {
+				velocities[i] = ProfileGenerator.neighborLimit(velocities[i-1], velocities[i], accelerations[i],
+						positions[i] - positions[i-1]);
+			}
+		}
+	}
+	
+	/**
+	 * Limits each point by the point after it, then finds the time at each point.
+	 */
+	private void timePoints() {
+		int length = profilePoints.length;
+		double[] positions = profilePoints.x;
+		double[] velocities = profilePoints.v;
+		double[] accelerations = profilePoints.a;
+		
+		for(int i = length-2;i >= 0;i--) {
+			// Limit by the next point
+			velocities[i] = ProfileGenerator.neighborLimit(velocities[i+1], velocities[i], accelerations[i],
+					positions[i+1] - positions[i]);
+			
+			// Time between this point and the next, until it can be added up from the start
+			double t = 2 * (positions[i+1] - positions[i])/(velocities[i] + velocities[i+1]);
+			profileTimes[i+1] = Math.abs(t);
+		}
+		
+		profileTimes[0] = 0;
+		for(int i = 1;i < length;i++) {
+			profileTimes[i] += profileTimes[i-1];
+		}
+	}
+	
+	/**
+	 * Resamples the points at each time step, differentiates them, synchronizes the rotation,
+	 * and filters the result.
+	 */
+	private void resample() {
+		resetCursor();
+		timePoints.setLength(cursor.getLength());
+		angularTimePoints.setLength(cursor.getLength());
+		while(cursor.hasNext()) {
+			int i = cursor.getIndex();
+			cursor.next(timePoint, angularTimePoint);
+			timePoints.x[i] = timePoint[0];
+			timePoints.v[i] = timePoint[1];
+			timePoints.a[i] = timePoint[2];
+			angularTimePoints.x[i] = angularTimePoint[0];
+			angularTimePoints.v[i] = angularTimePoint[1];
+			angularTimePoints.a[i] = angularTimePoint[2];
+		}
+	}
+	
+	/**
+	 * Moves the cursor to the start of the timed points.
+	 */
+	private TrajectoryCursor resetCursor() {
+		int filterLength = (int)Math.ceil(amax/jmax/dt);
+		if(cursor == null) {
+			cursor = new TrajectoryCursor(profilePoints, angles, profileTimes, dt, filterLength, hermite);
+		}
+		else {
+			cursor.reset(profilePoints, angles, profileTimes, dt, filterLength, hermite);
+		}
+		return cursor;
+	}
+}
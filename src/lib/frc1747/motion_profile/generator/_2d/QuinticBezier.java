@@ -1,5 +1,7 @@
 package lib.frc1747.motion_profile.generator._2d;
 
+import java.util.ArrayList;
+
 import lib.frc1747.motion_profile.Util;
 
 /**
@@ -75,11 +77,18 @@ public class QuinticBezier {
 	 */
 	public double[] uniformTimePositionSample(int samples) {
 		double dt = 1.0/samples;
+		double[] t = new double[samples + 1];
+		for(int i = 0;i <= samples;i++) {
+			t[i] = i * dt;
+		}
+		double[] x = new double[samples + 1];
+		double[] y = new double[samples + 1];
+		getPositions(t, samples + 1, x, y);
+		
 		double output[] = new double[(samples + 1) * 2];
 		for(int i = 0;i <= samples;i++) {
-			double t = i * dt;
-			output[i*2] = getPX(t);
-			output[i*2 + 1] = getPY(t);
+			output[i*2] = x[i];
+			output[i*2 + 1] = y[i];
 		}
 		return output;
 	}
@@ -103,6 +112,90 @@ public class QuinticBezier {
 		return s;
 	}
 	
+	/**
+	 * Returns the total arc length of this curve to within a tolerance.
+	 * 
+	 * @param tolerance The largest acceptable error in the arc length
+	 * @return The total length of the curve
+	 * @see #arcLength(double, double, double)
+	 */
+	public double arcLength(double tolerance) {
+		return arcLength(0, 1, tolerance);
+	}
+	
+	/**
+	 * Returns the arc length of part of this curve to within a tolerance.
+	 * 
+	 * Uses adaptive Gauss-Legendre quadrature, which splits the curve only where the
+	 * speed changes quickly, so nearly straight curves take a single split
+	 * and sharp curves are still accurate.
+	 * 
+	 * @param t0 The arc parameter to start at
+	 * @param t1 The arc parameter to end at
+	 * @param tolerance The largest acceptable error in the arc length
+	 * @return The length of the curve between t0 and t1
+	 */
+	public double arcLength(double t0, double t1, double tolerance) {
+		// Start from a few pieces so the halves cannot agree with the whole by chance
+		double s = 0;
+		for(int i = 0;i < MIN_ARC_PIECES;i++) {
+			double a = t0 + (t1 - t0) * i / MIN_ARC_PIECES;
+			double b = t0 + (t1 - t0) * (i+1) / MIN_ARC_PIECES;
+			s += adaptiveArcLength(a, b, gaussLegendreArcLength(a, b), tolerance / MIN_ARC_PIECES, 30);
+		}
+		return s;
+	}
+	
+	/**
+	 * Refines an estimate of the arc length by splitting the interval in half
+	 * until the halves agree with the whole.
+	 */
+	private double adaptiveArcLength(double t0, double t1, double whole, double tolerance, int depth) {
+		double tm = (t0 + t1) / 2;
+		double left = gaussLegendreArcLength(t0, tm);
+		double right = gaussLegendreArcLength(tm, t1);
+		if(depth == 0 || Math.abs(left + right - whole) <= tolerance) {
+			return left + right;
+		}
+		return	adaptiveArcLength(t0, tm, left, tolerance/2, depth-1) +
+				adaptiveArcLength(tm, t1, right, tolerance/2, depth-1);
+	}
+	
+	/**
+	 * Returns the arc length of a short part of this curve to within a tolerance.
+	 */
+	private double arcLengthPiece(double t0, double t1, double tolerance) {
+		return adaptiveArcLength(t0, t1, gaussLegendreArcLength(t0, t1), tolerance, 30);
+	}
+	
+	private static final int MIN_ARC_PIECES = 4;
+	
+	// Five point Gauss-Legendre nodes and weights on [-1, 1]
+	private static final double[] GAUSS_NODES = {
+			0,
+			-0.5384693101056831, 0.5384693101056831,
+			-0.9061798459386640, 0.9061798459386640,
+	};
+	private static final double[] GAUSS_WEIGHTS = {
+			0.5688888888888889,
+			0.4786286704993665, 0.4786286704993665,
+			0.2369268850561891, 0.2369268850561891,
+	};
+	
+	/**
+	 * Estimates the arc length between two arc parameters with a single five point Gauss-Legendre rule.
+	 */
+	private double gaussLegendreArcLength(double t0, double t1) {
+		double half = (t1 - t0) / 2;
+		double middle = (t0 + t1) / 2;
+		double s = 0;
+		for(int i = 0;i < GAUSS_NODES.length;i++) {
+			double t = middle + half * GAUSS_NODES[i];
+			s += GAUSS_WEIGHTS[i] * Math.hypot(getDX(t), getDY(t));
+		}
+		return s * half;
+	}
+	
 	/**
 	 * Returns an array containing corresponding times and arc positions.
 	 * 
@@ -115,15 +208,24 @@ public class QuinticBezier {
 		double dt = 1.0/samples;
 		double s = 0;
 		
+		// Evaluate the speed at every sample at once
+		double[] t = new double[samples + 1];
+		for(int i = 0;i <= samples;i++) {
+			t[i] = i * dt;
+		}
+		double[] speeds = new double[samples + 1];
+		getSpeeds(t, samples + 1, speeds);
+		
 		for(int i = 0;i <= samples;i++) {
 			//Record current values
-			double t = i * dt;
-			output[i][0] = t;
+			output[i][0] = t[i];
 			output[i][1] = s;
 			
 			//Update segment length
-			s += Math.hypot(getDX(t), getDY(t)) * dt/2;
-			s += Math.hypot(getDX(t+dt), getDY(t+dt)) * dt/2;
+			if(i < samples) {
+				s += speeds[i] * dt/2;
+				s += speeds[i+1] * dt/2;
+			}
 		}
 		
 		return output;
@@ -138,20 +240,95 @@ public class QuinticBezier {
 	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
 	 */
 	public double[][] uniformLengthSegmentData(int timeSampleCount, double sampleLength) {
+		return uniformLengthSegmentData(uniformTimeArcLength(timeSampleCount), sampleLength);
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile that is parameterized for arc length,
+	 * using an arc length already found with {@link #uniformTimeArcLength(int)} instead of finding it again.
+	 * 
+	 * @param totalLength The arc length of the curve
+	 * @param sampleLength The target arc length of the output segments
+	 * @return A flattened profile in the form delta arc length and delta theta.<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 */
+	public double[][] uniformLengthSegmentData(double totalLength, double sampleLength) {
+		int samples = uniformLengthSegmentCount(totalLength, sampleLength);
+		double[] ds = new double[samples];
+		double[] dtheta = new double[samples];
+		uniformLengthSegmentData(totalLength, sampleLength, ds, dtheta, 0);
+		
+		double[][] output = new double[samples][2];
+		for(int i = 0;i < samples;i++) {
+			output[i][0] = ds[i];
+			output[i][1] = dtheta[i];
+		}
+		return output;
+	}
+	
+	/**
+	 * Finds the number of segments {@link #uniformLengthSegmentData(int, double)} will flatten the 2D profile into.
+	 * 
+	 * @param timeSampleCount The number of equal time segments to initially estimate
+	 * @param sampleLength The target arc length of the output segments
+	 * @return The number of segments
+	 */
+	public int uniformLengthSegmentCount(int timeSampleCount, double sampleLength) {
+		return uniformLengthSegmentCount(uniformTimeArcLength(timeSampleCount), sampleLength);
+	}
+	
+	/**
+	 * Finds the number of segments a curve with a known arc length is flattened into.
+	 * 
+	 * @param totalLength The arc length of the curve
+	 * @param sampleLength The target arc length of the output segments
+	 * @return The number of segments
+	 */
+	public static int uniformLengthSegmentCount(double totalLength, double sampleLength) {
+		return (int)Math.ceil(totalLength / sampleLength);
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile that is parameterized for arc length,
+	 * writing it into part of a larger buffer.
+	 * 
+	 * @param timeSampleCount The number of equal time segments to initially estimate
+	 * @param sampleLength The target arc length of the output segments
+	 * @param ds The array to write the delta arc length of each segment into
+	 * @param dtheta The array to write the delta theta of each segment into
+	 * @param offset The index to write the first segment at,
+	 * followed by {@link #uniformLengthSegmentCount(int, double)} segments
+	 */
+	public void uniformLengthSegmentData(int timeSampleCount, double sampleLength,
+			double[] ds, double[] dtheta, int offset) {
+		uniformLengthSegmentData(uniformTimeArcLength(timeSampleCount), sampleLength, ds, dtheta, offset);
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile that is parameterized for arc length,
+	 * writing it into part of a larger buffer,
+	 * using an arc length already found with {@link #uniformTimeArcLength(int)} instead of finding it again.
+	 * 
+	 * @param totalLength The arc length of the curve
+	 * @param sampleLength The target arc length of the output segments
+	 * @param ds The array to write the delta arc length of each segment into
+	 * @param dtheta The array to write the delta theta of each segment into
+	 * @param offset The index to write the first segment at,
+	 * followed by {@link #uniformLengthSegmentCount(double, double)} segments
+	 */
+	public void uniformLengthSegmentData(double totalLength, double sampleLength,
+			double[] ds, double[] dtheta, int offset) {
 		// Adjust the sampleLength in order to make it exactly fit the arc length
-		double totalLength = uniformTimeArcLength(timeSampleCount);
-		int samples = (int)Math.ceil(totalLength / sampleLength);
+		int samples = uniformLengthSegmentCount(totalLength, sampleLength);
 		sampleLength = totalLength / samples;
 		
 		//Create the length->u lookup table
 		double[][] lengthTable = uniformTimeArcLengthSample(samples * 5);
-		//Create the output array
-		double[][] output = new double[samples][2];
+		//The time at the start of each segment, and the end of the last one
+		double[] times = new double[samples + 1];
 
 		//i -> current segment
 		//j -> position in lookup table
-		//old_t -> t of the last time
-		double old_t = 0;
 		for(int i = 0, j = 0;i < samples;i++) {
 			double s = i * sampleLength;
 
@@ -179,23 +356,219 @@ public class QuinticBezier {
 			}
 			
 			//Write out the results
+			ds[offset + i] = sampleLength * (reverse ? -1 : 1);
+			times[i] = t;
+		}
+		times[samples] = 1;
+		
+		//Find the change in heading over each segment
+		getTurns(times, samples + 1, dtheta, offset);
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile that is parameterized for arc length.
+	 * 
+	 * Unlike {@link #uniformLengthSegmentData(int, double)}, no length lookup table is built.
+	 * The end of each segment is found with Newton's method on the arc length,
+	 * starting from the end of the previous segment, so only the end of each segment is kept besides the output.
+	 * 
+	 * @param sampleLength The target arc length of the output segments
+	 * @param tolerance The largest acceptable error in the arc length at the end of any segment
+	 * @return A flattened profile in the form delta arc length and delta theta.<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 */
+	public double[][] inverseLengthSegmentData(double sampleLength, double tolerance) {
+		return inverseLengthSegmentData(sampleLength, tolerance, false);
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile that is parameterized for arc length.
+	 * 
+	 * The change in heading over each segment is either the difference of the headings at its ends,
+	 * or the curvature integrated over its length like {@link #getTurns(double[], int, double[], int)}.
+	 * 
+	 * @param sampleLength The target arc length of the output segments
+	 * @param tolerance The largest acceptable error in the arc length at the end of any segment
+	 * @param integrateCurvature Whether to find the change in heading by integrating the curvature
+	 * @return A flattened profile in the form delta arc length and delta theta.<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @see #inverseLengthSegmentData(double, double)
+	 */
+	public double[][] inverseLengthSegmentData(double sampleLength, double tolerance, boolean integrateCurvature) {
+		// Adjust the sampleLength in order to make it exactly fit the arc length
+		double totalLength = arcLength(tolerance / 2);
+		int samples = (int)Math.ceil(totalLength / sampleLength);
+		sampleLength = totalLength / samples;
+		double[] times = inverseLengthTimes(totalLength, samples, tolerance);
+		
+		//Find the change in heading over each segment
+		double[] dtheta = new double[samples + 1];
+		if(integrateCurvature) {
+			getTurns(times, samples + 1, dtheta, 0);
+		}
+		else {
+			getHeadings(times, samples + 1, dtheta);
+			for(int i = 0;i < samples;i++) {
+				double delta = dtheta[i+1] - dtheta[i];
+				if(delta < -Math.PI) delta += Math.PI * 2;
+				if(delta >  Math.PI) delta -= Math.PI * 2;
+				dtheta[i] = delta;
+			}
+		}
+		
+		//Write out the results
+		double[][] output = new double[samples][2];
+		for(int i = 0;i < samples;i++) {
 			output[i][0] = sampleLength * (reverse ? -1 : 1);
-			if(i > 0) {
-				double dtheta = getHeading(t) - getHeading(old_t);
-				if(dtheta < -Math.PI) dtheta += Math.PI * 2;
-				if(dtheta >  Math.PI) dtheta -= Math.PI * 2;
-				output[i-1][1] = dtheta;
+			output[i][1] = dtheta[i];
+		}
+		return output;
+	}
+	
+	/**
+	 * Finds the arc parameters at the ends of the segments {@link #inverseLengthSegmentData(double, double)}
+	 * flattens the 2D profile into.
+	 * 
+	 * @param sampleLength The target arc length of the output segments
+	 * @param tolerance The largest acceptable error in the arc length at the end of any segment
+	 * @return The arc parameter at the start of each segment, followed by 1 for the end of the last one
+	 */
+	public double[] inverseLengthTimes(double sampleLength, double tolerance) {
+		double totalLength = arcLength(tolerance / 2);
+		return inverseLengthTimes(totalLength, (int)Math.ceil(totalLength / sampleLength), tolerance);
+	}
+	
+	/**
+	 * Finds the arc parameters that split the curve into segments of equal arc length.
+	 */
+	private double[] inverseLengthTimes(double totalLength, int samples, double tolerance) {
+		double sampleLength = totalLength / samples;
+		// Split the remaining error between the segments so it cannot add up past the tolerance
+		double segmentTolerance = tolerance / 2 / samples;
+		
+		double[] times = new double[samples + 1];
+		for(int i = 1;i < samples;i++) {
+			times[i] = inverseArcLength(times[i-1], sampleLength, segmentTolerance);
+		}
+		// The last segment ends exactly at the end of the curve
+		times[samples] = 1;
+		return times;
+	}
+	
+	/**
+	 * Flattens the 2D profile into a 1D profile with segments that are longer where the curvature changes slowly.
+	 * 
+	 * The profile generator treats the curvature as constant along each segment, so a segment is halved until
+	 * its curvature changes by at most maxCurvatureChange, and it turns at most {@link #MAX_SEGMENT_TURN}.
+	 * After a segment that is well within both, the next segment is twice as long.
+	 * Long straight and constant radius stretches take far fewer segments than S curves.
+	 * 
+	 * @param minLength The shortest arc length of the output segments, used where the curvature changes quickly
+	 * @param maxLength The longest arc length of the output segments
+	 * @param maxCurvatureChange The largest acceptable change in curvature along any segment
+	 * @param tolerance The largest acceptable error in the arc length at the end of any segment
+	 * @return A flattened profile in the form delta arc length and delta theta.<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @see #inverseLengthSegmentData(double, double)
+	 */
+	public double[][] adaptiveLengthSegmentData(double minLength, double maxLength, double maxCurvatureChange,
+			double tolerance) {
+		double totalLength = arcLength(tolerance / 2);
+		// Split the remaining error between as many segments as there could be
+		double segmentTolerance = tolerance / 2 / Math.ceil(totalLength / minLength);
+		
+		ArrayList<double[]> output = new ArrayList<>();
+		double s = 0;
+		double old_t = 0;
+		double old_heading = getHeading(0);
+		double old_curvature = getCurvature(0);
+		double sampleLength = minLength;
+		while(true) {
+			// Take the rest of the curve if it would only leave a short segment,
+			// splitting it in two if that would be too long for one segment
+			double remaining = totalLength - s;
+			boolean last = remaining - sampleLength < minLength;
+			if(last && remaining > maxLength) {
+				sampleLength = remaining / 2;
+				last = false;
+			}
+			else if(last) {
+				sampleLength = remaining;
+			}
+			double t = last ? 1 : inverseArcLength(old_t, sampleLength, segmentTolerance);
+			
+			// Check the middle of the segment as well to catch curvature that changes back
+			double curvature = getCurvature(t);
+			double middle_curvature = getCurvature((old_t + t) / 2);
+			double change = Math.abs(middle_curvature - old_curvature) + Math.abs(curvature - middle_curvature);
+			double turn = sampleLength *
+					Math.max(Math.abs(middle_curvature), Math.max(Math.abs(old_curvature), Math.abs(curvature)));
+			if(		(change > maxCurvatureChange || turn > MAX_SEGMENT_TURN) &&
+					sampleLength > minLength && remaining >= minLength * 2) {
+				sampleLength = Math.max(sampleLength / 2, minLength);
+				continue;
 			}
 			
+			//Write out the results
+			double heading = getHeading(t);
+			double dtheta = heading - old_heading;
+			if(dtheta < -Math.PI) dtheta += Math.PI * 2;
+			if(dtheta >  Math.PI) dtheta -= Math.PI * 2;
+			output.add(new double[] {sampleLength * (reverse ? -1 : 1), dtheta});
+			if(last) {
+				break;
+			}
+			
+			s += sampleLength;
 			old_t = t;
+			old_heading = heading;
+			old_curvature = curvature;
+			if(change < maxCurvatureChange / 2 && turn < MAX_SEGMENT_TURN / 2) {
+				sampleLength = Math.min(sampleLength * 2, maxLength);
+			}
 		}
 		
-		double dtheta = getHeading(1) - getHeading(old_t);
-		if(dtheta < -Math.PI) dtheta += Math.PI * 2;
-		if(dtheta >  Math.PI) dtheta -= Math.PI * 2;
-		output[samples-1][1] = dtheta;
-				
-		return output;
+		return output.toArray(new double[output.size()][]);
+	}
+	
+	/**
+	 * The most an adaptive segment may turn, so the change in heading cannot wrap around (rad)
+	 */
+	public static final double MAX_SEGMENT_TURN = Math.PI / 4;
+	
+	/**
+	 * Finds the arc parameter a given arc length past another one, using Newton's method.
+	 * Steps that would leave the bracket around the answer bisect it instead,
+	 * so points where the curve stops are handled.
+	 */
+	private double inverseArcLength(double t0, double length, double tolerance) {
+		double low = t0;
+		double high = 1;
+		
+		// Start from a single Newton step from t0, where the length is known to be zero
+		double speed = Math.hypot(getDX(t0), getDY(t0));
+		double t = speed > 0 ? t0 + length / speed : (low + high) / 2;
+		if(t >= high) t = (low + high) / 2;
+		
+		// Each step only integrates the piece between the old and new guesses
+		double s = arcLengthPiece(t0, t, tolerance);
+		for(int i = 0;i < 50;i++) {
+			double error = s - length;
+			if(Math.abs(error) <= tolerance) {
+				break;
+			}
+			if(error < 0) low = t;
+			else high = t;
+			
+			speed = Math.hypot(getDX(t), getDY(t));
+			double next = speed > 0 ? t - error / speed : low;
+			if(next <= low || next >= high) {
+				next = (low + high) / 2;
+			}
+			s += next > t ? arcLengthPiece(t, next, tolerance) : -arcLengthPiece(next, t, tolerance);
+			t = next;
+		}
+		return t;
 	}
 	
 	/**
@@ -289,7 +662,7 @@ public class QuinticBezier {
 		return
 			20 * cxt5 * t * t * t +
 			12 * cxt4 * t * t +
-			3  * cxt3 * t +
+			6  * cxt3 * t +
 			2  * cxt2;
 	}
 	
@@ -307,6 +680,143 @@ public class QuinticBezier {
 			2  * cyt2;
 	}
 	
+	/**
+	 * Gets the positions at many arc parameters at once.
+	 * 
+	 * @param t the arc parameters, where 0 &#8804; t &#8804; 1
+	 * @param count the number of arc parameters to evaluate
+	 * @param x the array to write the x positions into
+	 * @param y the array to write the y positions into
+	 */
+	public void getPositions(double[] t, int count, double[] x, double[] y) {
+		// Horner's method
+		for(int i = 0;i < count;i++) {
+			double ti = t[i];
+			x[i] = ((((cxt5 * ti + cxt4) * ti + cxt3) * ti + cxt2) * ti + cxt1) * ti + cxt0;
+			y[i] = ((((cyt5 * ti + cyt4) * ti + cyt3) * ti + cyt2) * ti + cyt1) * ti + cyt0;
+		}
+	}
+	
+	/**
+	 * Gets the first derivatives of position at many arc parameters at once.
+	 * 
+	 * @param t the arc parameters, where 0 &#8804; t &#8804; 1
+	 * @param count the number of arc parameters to evaluate
+	 * @param dx the array to write the first derivatives of x position into
+	 * @param dy the array to write the first derivatives of y position into
+	 */
+	public void getDerivatives(double[] t, int count, double[] dx, double[] dy) {
+		double dxt4 = 5 * cxt5, dxt3 = 4 * cxt4, dxt2 = 3 * cxt3, dxt1 = 2 * cxt2;
+		double dyt4 = 5 * cyt5, dyt3 = 4 * cyt4, dyt2 = 3 * cyt3, dyt1 = 2 * cyt2;
+		// Horner's method
+		for(int i = 0;i < count;i++) {
+			double ti = t[i];
+			dx[i] = (((dxt4 * ti + dxt3) * ti + dxt2) * ti + dxt1) * ti + cxt1;
+			dy[i] = (((dyt4 * ti + dyt3) * ti + dyt2) * ti + dyt1) * ti + cyt1;
+		}
+	}
+	
+	/**
+	 * Gets the speeds, the magnitudes of the first derivative of position, at many arc parameters at once.
+	 * 
+	 * @param t the arc parameters, where 0 &#8804; t &#8804; 1
+	 * @param count the number of arc parameters to evaluate
+	 * @param speeds the array to write the speeds into
+	 */
+	public void getSpeeds(double[] t, int count, double[] speeds) {
+		double dxt4 = 5 * cxt5, dxt3 = 4 * cxt4, dxt2 = 3 * cxt3, dxt1 = 2 * cxt2;
+		double dyt4 = 5 * cyt5, dyt3 = 4 * cyt4, dyt2 = 3 * cyt3, dyt1 = 2 * cyt2;
+		for(int i = 0;i < count;i++) {
+			double ti = t[i];
+			double dx = (((dxt4 * ti + dxt3) * ti + dxt2) * ti + dxt1) * ti + cxt1;
+			double dy = (((dyt4 * ti + dyt3) * ti + dyt2) * ti + dyt1) * ti + cyt1;
+			speeds[i] = Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+	
+	/**
+	 * Gets the headings at many arc parameters at once.
+	 * 
+	 * @param t the arc parameters, where 0 &#8804; t &#8804; 1
+	 * @param count the number of arc parameters to evaluate
+	 * @param headings the array to write the headings into (normalized so -PI &#8804; heading &#8804; PI)
+	 * @see #getHeading(double)
+	 */
+	public void getHeadings(double[] t, int count, double[] headings) {
+		double dxt4 = 5 * cxt5, dxt3 = 4 * cxt4, dxt2 = 3 * cxt3, dxt1 = 2 * cxt2;
+		double dyt4 = 5 * cyt5, dyt3 = 4 * cyt4, dyt2 = 3 * cyt3, dyt1 = 2 * cyt2;
+		for(int i = 0;i < count;i++) {
+			double ti = t[i];
+			double dx = (((dxt4 * ti + dxt3) * ti + dxt2) * ti + dxt1) * ti + cxt1;
+			double dy = (((dyt4 * ti + dyt3) * ti + dyt2) * ti + dyt1) * ti + cyt1;
+			double theta = Math.atan2(dy, dx) + Math.PI/2;
+			if(theta < -Math.PI) theta += Math.PI * 2;
+			if(theta >  Math.PI) theta -= Math.PI * 2;
+			headings[i] = theta;
+		}
+	}
+	
+	/**
+	 * Gets the change in heading between consecutive arc parameters.
+	 * 
+	 * The rate the heading changes with the arc parameter is integrated with Simpson's rule,
+	 * so each change takes the rate at the end of the one before it, and one more rate in its middle,
+	 * with no trigonometry.
+	 * Where that does not agree with the trapezoid rule from the same ends, such as where the curve stops
+	 * and turns in place, the difference of the headings at the ends is used instead.
+	 * 
+	 * @param t the arc parameters, where 0 &#8804; t &#8804; 1
+	 * @param count the number of arc parameters, one more than the number of changes
+	 * @param dtheta the array to write the changes in heading into
+	 * @param offset the index to write the first change at
+	 */
+	public void getTurns(double[] t, int count, double[] dtheta, int offset) {
+		double rate = getHeadingRate(t[0]);
+		for(int i = 0;i < count-1;i++) {
+			double next = getHeadingRate(t[i+1]);
+			dtheta[offset + i] = turn(t[i], t[i+1], rate, next);
+			rate = next;
+		}
+	}
+	
+	/**
+	 * The most the Simpson's and trapezoid rules may differ by before a change in heading
+	 * is found from the headings at its ends instead (rad)
+	 */
+	private static final double TURN_TOLERANCE = 1E-7;
+	
+	/**
+	 * Finds the change in heading between two arc parameters, given the rate at each of them.
+	 */
+	private double turn(double t0, double t1, double rate0, double rate1) {
+		double h = t1 - t0;
+		double simpson = (rate0 + 4 * getHeadingRate((t0 + t1) / 2) + rate1) * h / 6;
+		double trapezoid = (rate0 + rate1) * h / 2;
+		if(Math.abs(simpson - trapezoid) <= TURN_TOLERANCE) {
+			return simpson;
+		}
+		
+		double delta = getHeading(t1) - getHeading(t0);
+		if(delta < -Math.PI) delta += Math.PI * 2;
+		if(delta >  Math.PI) delta -= Math.PI * 2;
+		return delta;
+	}
+	
+	/**
+	 * Gets the rate the heading changes with the arc parameter, the curvature times the speed, at arc parameter t.
+	 * 
+	 * @param t The position along the arc where 0 &#8804; t &#8804; 1
+	 * @return the rate the heading changes, which is not finite where the curve stops
+	 */
+	public double getHeadingRate(double t) {
+		// Horner's method
+		double dx = (((5 * cxt5 * t + 4 * cxt4) * t + 3 * cxt3) * t + 2 * cxt2) * t + cxt1;
+		double dy = (((5 * cyt5 * t + 4 * cyt4) * t + 3 * cyt3) * t + 2 * cyt2) * t + cyt1;
+		double ddx = ((20 * cxt5 * t + 12 * cxt4) * t + 6 * cxt3) * t + 2 * cxt2;
+		double ddy = ((20 * cyt5 * t + 12 * cyt4) * t + 6 * cyt3) * t + 2 * cyt2;
+		return (dx * ddy - dy * ddx) / (dx * dx + dy * dy);
+	}
+	
 	/**
 	 * Gets the heading at arc parameter t.
 	 * 
@@ -0,0 +1,185 @@
+package lib.frc1747.motion_profile.generator._2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+
+/**
+ * Remembers the QuinticBeziers of a path and their flattened segments,
+ * so only the splines that changed are sampled again.
+ * 
+ * Each spline is keyed by the waypoints at its ends, its reverse flag, and the sample settings.
+ * When a single waypoint is dragged, only the two splines touching it are rebuilt.
+ * Inserting or removing a waypoint also keeps every spline that is otherwise unchanged.
+ * 
+ * @author Tiger Huang
+ *
+ */
+public class SplineCache {
+	private HashMap<Key, Entry> entries;
+	private Entry[] path;
+	private QuinticBezier[] splines;
+	private int rebuilt;
+	
+	/**
+	 * Creates an empty SplineCache.
+	 */
+	public SplineCache() {
+		entries = new HashMap<>();
+		path = new Entry[0];
+		splines = new QuinticBezier[0];
+	}
+	
+	/**
+	 * Updates the path to a new list of waypoints, rebuilding only the splines that changed.
+	 * Splines that are no longer in the path are forgotten.
+	 * 
+	 * @param waypoints an array of waypoints to use
+	 * @param initial_sample_count the number of sample to take when finding the arc length
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 */
+	public void update(Waypoint[] waypoints, int initial_sample_count, double initial_sample_length) {
+		HashMap<Key, Entry> previous = entries;
+		entries = new HashMap<>();
+		path = new Entry[Math.max(waypoints.length - 1, 0)];
+		splines = new QuinticBezier[path.length];
+		ArrayList<Entry> added = new ArrayList<>();
+		
+		for(int i = 0;i < path.length;i++) {
+			Key key = new Key(waypoints[i], waypoints[i+1], initial_sample_count, initial_sample_length);
+			Entry entry = entries.get(key);
+			if(entry == null) entry = previous.get(key);
+			if(entry == null) {
+				entry = new Entry(waypoints[i], waypoints[i+1]);
+				added.add(entry);
+			}
+			entries.put(key, entry);
+			path[i] = entry;
+			splines[i] = entry.spline;
+		}
+		rebuilt = added.size();
+		
+		// Opening a path rebuilds every spline, so sample them in parallel
+		(rebuilt > 1 ? added.parallelStream() : added.stream())
+				.forEach(entry -> entry.sample(initial_sample_count, initial_sample_length));
+	}
+	
+	/**
+	 * Gets the QuinticBeziers of the path.
+	 * 
+	 * @return an array of QuinticBeziers that satisfies the waypoints
+	 */
+	public QuinticBezier[] getSplines() {
+		return splines;
+	}
+	
+	/**
+	 * Gets the arc length of each QuinticBezier of the path.
+	 * 
+	 * @return the arc length of each spline
+	 */
+	public double[] getArcLengths() {
+		double[] arcLengths = new double[path.length];
+		for(int i = 0;i < path.length;i++) {
+			arcLengths[i] = path[i].arcLength;
+		}
+		return arcLengths;
+	}
+	
+	/**
+	 * Gets the number of splines that were rebuilt by the last update.
+	 * 
+	 * @return the number of rebuilt splines
+	 */
+	public int getRebuiltCount() {
+		return rebuilt;
+	}
+	
+	/**
+	 * Flattens the path into a list of differences of distance and rotation.
+	 * The rows are shared with the cache, so they must not be changed.
+	 * 
+	 * @return an array containing differences of distance and rotation<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 */
+	public double[][] flattenProfile() {
+		int profileLength = 0;
+		for(int i = 0;i < path.length;i++) {
+			profileLength += path[i].segments.length;
+		}
+		double[][] profileSegments = new double[profileLength][];
+		for(int i = 0, j = 0;i < path.length;i++) {
+			System.arraycopy(
+					path[i].segments, 0,
+					profileSegments, j,
+					path[i].segments.length);
+			j += path[i].segments.length;
+		}
+		return profileSegments;
+	}
+	
+	/**
+	 * Flattens the path into a list of differences of distance and rotation.
+	 * 
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 */
+	public void flattenProfile(SegmentBuffer profileSegments) {
+		profileSegments.setLength(0);
+		for(int i = 0;i < path.length;i++) {
+			double[][] splineSegments = path[i].segments;
+			int j = profileSegments.length;
+			profileSegments.setLength(j + splineSegments.length);
+			for(int k = 0;k < splineSegments.length;k++) {
+				profileSegments.ds[j + k] = splineSegments[k][0];
+				profileSegments.dtheta[j + k] = splineSegments[k][1];
+			}
+		}
+	}
+	
+	/**
+	 * A spline and its samples.
+	 */
+	private static class Entry {
+		private QuinticBezier spline;
+		private double arcLength;
+		private double[][] segments;
+		
+		private Entry(Waypoint w1, Waypoint w2) {
+			spline = SplineGenerator.splinesFromWaypoints(new Waypoint[] {w1, w2})[0];
+		}
+		
+		private void sample(int initial_sample_count, double initial_sample_length) {
+			arcLength = spline.uniformTimeArcLength(initial_sample_count);
+			segments = spline.uniformLengthSegmentData(arcLength, initial_sample_length);
+		}
+	}
+	
+	/**
+	 * Everything a spline and its samples depend on.
+	 */
+	private static class Key {
+		private double[] values;
+		
+		private Key(Waypoint w1, Waypoint w2, int initial_sample_count, double initial_sample_length) {
+			values = new double[] {
+					w1.x, w1.y, w1.v_t, w1.v_m, w1.a_t, w1.a_m,
+					w2.x, w2.y, w2.v_t, w2.v_m, w2.a_t, w2.a_m,
+					w1.reverse ? 1 : 0,
+					initial_sample_count, initial_sample_length,
+			};
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.equals(values, ((Key)other).values);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+}
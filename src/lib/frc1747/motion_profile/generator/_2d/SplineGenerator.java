@@ -1,5 +1,9 @@
 package lib.frc1747.motion_profile.generator._2d;
 
+import java.util.stream.IntStream;
+
+import lib.frc1747.motion_profile.SegmentBuffer;
+
 /**
  * Contains several utility methods for converting waypoints (2d) into profiles.
  * 
@@ -27,6 +31,58 @@ public class SplineGenerator {
 		return splines;
 	}
 
+	/**
+	 * Creates the per waypoint limits, placing each waypoint at its arc length along the path.
+	 * 
+	 * @param waypoints an array of waypoints to use
+	 * @param splines the QuinticBeziers between the waypoints
+	 * @param initial_sample_count the number of sample to take when finding the arc length
+	 * @return the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 */
+	public static double[][] waypointLimitsFromWaypoints(Waypoint[] waypoints, QuinticBezier[] splines,
+			int initial_sample_count) {
+		return waypointLimitsFromArcLengths(waypoints, arcLengthsFromSplines(splines, initial_sample_count));
+	}
+	
+	/**
+	 * Finds the arc length of each QuinticBezier, finding them in parallel.
+	 * 
+	 * @param splines an array of QuinticBeziers to measure
+	 * @param initial_sample_count the number of sample to take when finding the arc length
+	 * @return the arc length of each spline
+	 */
+	public static double[] arcLengthsFromSplines(QuinticBezier[] splines, int initial_sample_count) {
+		double[] arcLengths = new double[splines.length];
+		IntStream.range(0, splines.length).parallel().forEach(i ->
+				arcLengths[i] = splines[i].uniformTimeArcLength(initial_sample_count));
+		return arcLengths;
+	}
+	
+	/**
+	 * Creates the per waypoint limits, placing each waypoint at its arc length along the path.
+	 * 
+	 * @param waypoints an array of waypoints to use
+	 * @param arcLengths the arc length of each QuinticBezier between the waypoints
+	 * @return the limits at each waypoint<br>
+	 * The format is [s0, m_sv0, m_sa0, m_av0, m_aa0; s1, m_sv1, m_sa1, m_av1, m_aa1; ...]
+	 */
+	public static double[][] waypointLimitsFromArcLengths(Waypoint[] waypoints, double[] arcLengths) {
+		double[][] waypointLimits = new double[arcLengths.length+1][5];
+		for(int i = 0;i < waypointLimits.length;i++) {
+			waypointLimits[i][1] = waypoints[i].m_sv;
+			waypointLimits[i][2] = waypoints[i].m_sa;
+			waypointLimits[i][3] = waypoints[i].m_av;
+			waypointLimits[i][4] = waypoints[i].m_aa;
+		}
+		waypointLimits[0][0] = 0;
+		for(int i = 1;i < waypointLimits.length;i++) {
+			waypointLimits[i][0] = waypointLimits[i-1][0] +
+					arcLengths[i-1] * (waypoints[i-1].reverse ? -1 : 1);
+		}
+		return waypointLimits;
+	}
+	
 	/**
 	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation.
 	 * 
@@ -59,6 +115,172 @@ public class SplineGenerator {
 		return profileSegments;
 	}
 	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param initial_sample_count the number of sample to take when finding the arc length 
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 */
+	public static void flattenProfile(QuinticBezier[] splines,
+			int initial_sample_count, double initial_sample_length,
+			SegmentBuffer profileSegments) {
+		profileSegments.setLength(0);
+		for(int i = 0;i < splines.length;i++) {
+			double arcLength = splines[i].uniformTimeArcLength(initial_sample_count);
+			int j = profileSegments.length;
+			profileSegments.setLength(j + QuinticBezier.uniformLengthSegmentCount(arcLength, initial_sample_length));
+			splines[i].uniformLengthSegmentData(arcLength, initial_sample_length,
+					profileSegments.ds, profileSegments.dtheta, j);
+		}
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * flattening the splines in parallel.
+	 * 
+	 * The arc length of each spline is found first, so every spline can be written
+	 * straight into its own part of the buffer at the same time.
+	 * The result is the same as {@link #flattenProfile(QuinticBezier[], int, double, SegmentBuffer)}.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param initial_sample_count the number of sample to take when finding the arc length 
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 */
+	public static void parallelFlattenProfile(QuinticBezier[] splines,
+			int initial_sample_count, double initial_sample_length,
+			SegmentBuffer profileSegments) {
+		parallelFlattenProfile(splines, arcLengthsFromSplines(splines, initial_sample_count),
+				initial_sample_length, profileSegments);
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * flattening the splines in parallel with arc lengths that were already found.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param arcLengths the arc length of each spline, from {@link #arcLengthsFromSplines(QuinticBezier[], int)}
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 */
+	public static void parallelFlattenProfile(QuinticBezier[] splines, double[] arcLengths,
+			double initial_sample_length, SegmentBuffer profileSegments) {
+		// offsets[i] -> the index of the first segment of spline i
+		int[] offsets = new int[splines.length + 1];
+		for(int i = 0;i < splines.length;i++) {
+			offsets[i+1] = offsets[i] + QuinticBezier.uniformLengthSegmentCount(arcLengths[i], initial_sample_length);
+		}
+		
+		profileSegments.setLength(offsets[splines.length]);
+		double[] ds = profileSegments.ds;
+		double[] dtheta = profileSegments.dtheta;
+		IntStream.range(0, splines.length).parallel().forEach(i ->
+				splines[i].uniformLengthSegmentData(arcLengths[i], initial_sample_length,
+						ds, dtheta, offsets[i]));
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * without building an arc length lookup table for each spline.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 * @param tolerance the largest acceptable error in the arc length at the end of any segment
+	 * @param integrateCurvature whether to find the change in heading by integrating the curvature
+	 * @return an array containing differences of distance and rotation<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @see QuinticBezier#inverseLengthSegmentData(double, double, boolean)
+	 */
+	public static double[][] inverseFlattenProfile(QuinticBezier[] splines,
+			double initial_sample_length, double tolerance, boolean integrateCurvature) {
+		SegmentBuffer profileSegments = new SegmentBuffer(0);
+		inverseFlattenProfile(splines, initial_sample_length, tolerance, integrateCurvature, profileSegments);
+		return profileSegments.toRows();
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * without building an arc length lookup table for each spline.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param initial_sample_length the delta arc length the output should be separated by
+	 * @param tolerance the largest acceptable error in the arc length at the end of any segment
+	 * @param integrateCurvature whether to find the change in heading by integrating the curvature
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 * @see QuinticBezier#inverseLengthSegmentData(double, double, boolean)
+	 */
+	public static void inverseFlattenProfile(QuinticBezier[] splines,
+			double initial_sample_length, double tolerance, boolean integrateCurvature,
+			SegmentBuffer profileSegments) {
+		profileSegments.setLength(0);
+		for(int i = 0;i < splines.length;i++) {
+			double[][] splineSegments = splines[i].inverseLengthSegmentData(initial_sample_length, tolerance,
+					integrateCurvature);
+			int j = profileSegments.length;
+			profileSegments.setLength(j + splineSegments.length);
+			for(int k = 0;k < splineSegments.length;k++) {
+				profileSegments.ds[j + k] = splineSegments[k][0];
+				profileSegments.dtheta[j + k] = splineSegments[k][1];
+			}
+		}
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * with longer segments where the curvature changes slowly.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param min_sample_length the shortest delta arc length the output can be separated by
+	 * @param max_sample_length the longest delta arc length the output can be separated by
+	 * @param max_curvature_change the largest acceptable change in curvature along any segment
+	 * @param tolerance the largest acceptable error in the arc length at the end of any segment
+	 * @return an array containing differences of distance and rotation<br>
+	 * The format is [ds0, dtheta0; ds1, dtheta1; ...]
+	 * @see QuinticBezier#adaptiveLengthSegmentData(double, double, double, double)
+	 */
+	public static double[][] adaptiveFlattenProfile(QuinticBezier[] splines,
+			double min_sample_length, double max_sample_length, double max_curvature_change, double tolerance) {
+		SegmentBuffer profileSegments = new SegmentBuffer(0);
+		adaptiveFlattenProfile(splines, min_sample_length, max_sample_length, max_curvature_change, tolerance,
+				profileSegments);
+		return profileSegments.toRows();
+	}
+	
+	/**
+	 * Flattens a list of QuinticBeziers into a list of differences of distance and rotation,
+	 * with longer segments where the curvature changes slowly.
+	 * 
+	 * @param splines an array of QuinticBeziers to flatten
+	 * @param min_sample_length the shortest delta arc length the output can be separated by
+	 * @param max_sample_length the longest delta arc length the output can be separated by
+	 * @param max_curvature_change the largest acceptable change in curvature along any segment
+	 * @param tolerance the largest acceptable error in the arc length at the end of any segment
+	 * @param profileSegments the buffer to write the differences of distance and rotation into,
+	 * which is resized to fit them
+	 * @see QuinticBezier#adaptiveLengthSegmentData(double, double, double, double)
+	 */
+	public static void adaptiveFlattenProfile(QuinticBezier[] splines,
+			double min_sample_length, double max_sample_length, double max_curvature_change, double tolerance,
+			SegmentBuffer profileSegments) {
+		profileSegments.setLength(0);
+		for(int i = 0;i < splines.length;i++) {
+			double[][] splineSegments = splines[i].adaptiveLengthSegmentData(
+					min_sample_length, max_sample_length, max_curvature_change, tolerance);
+			int j = profileSegments.length;
+			profileSegments.setLength(j + splineSegments.length);
+			for(int k = 0;k < splineSegments.length;k++) {
+				profileSegments.ds[j + k] = splineSegments[k][0];
+				profileSegments.dtheta[j + k] = splineSegments[k][1];
+			}
+		}
+	}
+	
 	/**
 	 * Creates a profile based on mostly independent translational and rotational movements.
 	 * Be cautious when using with larger rotations because the robot will drive an arc.
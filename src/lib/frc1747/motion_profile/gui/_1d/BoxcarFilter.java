@@ -1,8 +1,15 @@
 package lib.frc1747.motion_profile.gui._1d;
 
+import lib.frc1747.motion_profile.Trajectory;
+
 /**
  * Implements a simple boxcar filter for profile smoothing.
  * 
+ * The filters keep a running sum of the window, so they take the same time for any filter length.
+ * The window is summed again from scratch every length samples, including the last one,
+ * so rounding errors cannot build up and a profile that ends at rest ends at exactly zero.
+ * Samples before the start and after the end of the input are treated as equal to the first and last samples.
+ * 
  * @author Tiger Huang
  *
  */
@@ -18,19 +25,155 @@ public class BoxcarFilter {
 	public static double[][] multiFilter(double[][] input, int length) {
 		double[][] output = new double[input.length + length - 1][input[0].length];
 
-		for(int i = 0;i < output.length;i++) {
-			for(int j = 0;j < output[0].length;j++) {
-				output[i][j] = 0;
-				for(int k = i - length + 1;k <= i;k++) {
-					int index = k;
-					if(index < 0) index = 0;
-					if(index > input.length-1) index = input.length-1;
-					output[i][j] += input[index][j];
+		for(int j = 0;j < output[0].length;j++) {
+			double sum = input[0][j] * length;
+			for(int i = 0;i < output.length;i++) {
+				if((output.length - 1 - i) % length == 0) {
+					sum = 0;
+					for(int k = i - length + 1;k <= i;k++) {
+						sum += input[Math.min(Math.max(k, 0), input.length-1)][j];
+					}
+				}
+				else {
+					// Slide the window forward by one sample
+					int index = Math.min(i, input.length-1);
+					int oldIndex = Math.min(Math.max(i - length, 0), input.length-1);
+					sum += input[index][j] - input[oldIndex][j];
 				}
-				output[i][j] /= length;
+				output[i][j] = sum / length;
 			}
 		}
 	
 		return output;
 	}
+	
+	/**
+	 * Filters all columns of a profile.
+	 * 
+	 * @param input the profile to smooth
+	 * @param length the length of the boxcar filter to use<br>
+	 * The actual time length of the profile will be given by length * dt
+	 * @return a smoothed profile
+	 */
+	public static Trajectory multiFilter(Trajectory input, int length) {
+		Trajectory output = new Trajectory(input.length + length - 1);
+		multiFilter(input, length, output);
+		return output;
+	}
+	
+	/**
+	 * Filters all columns of a profile.
+	 * 
+	 * @param input the profile to smooth
+	 * @param length the length of the boxcar filter to use<br>
+	 * The actual time length of the profile will be given by length * dt
+	 * @param output the profile to write the smoothed profile into, which is resized to fit it
+	 */
+	public static void multiFilter(Trajectory input, int length, Trajectory output) {
+		output.setLength(input.length + length - 1);
+		filter(input.x, input.length, length, output.x);
+		filter(input.v, input.length, length, output.v);
+		filter(input.a, input.length, length, output.a);
+	}
+	
+	/**
+	 * Filters a profile in place, growing it to fit the smoothed profile.
+	 * 
+	 * @param profile the profile to smooth
+	 * @param length the length of the boxcar filter to use<br>
+	 * The actual time length of the profile will be given by length * dt
+	 * @param window the samples being summed, which must hold at least length values<br>
+	 * This can be reused between calls so filtering does not allocate
+	 */
+	public static void multiFilterInPlace(Trajectory profile, int length, double[] window) {
+		int inputLength = profile.length;
+		profile.setLength(inputLength + length - 1);
+		filterInPlace(profile.x, inputLength, length, window);
+		filterInPlace(profile.v, inputLength, length, window);
+		filterInPlace(profile.a, inputLength, length, window);
+	}
+	
+	/**
+	 * Filters all columns of a profile several times in a row, which smooths it more than a single filter.
+	 * Each filter makes the profile longer by its length - 1.
+	 * 
+	 * @param input the profile to smooth
+	 * @param lengths the length of each boxcar filter to use, in order
+	 * @param output the profile to write the smoothed profile into, which is resized to fit it
+	 */
+	public static void cascadeFilter(Trajectory input, int[] lengths, Trajectory output) {
+		int maxLength = 1;
+		for(int length : lengths) {
+			maxLength = Math.max(maxLength, length);
+		}
+		double[] window = new double[maxLength];
+		
+		output.setLength(input.length);
+		System.arraycopy(input.x, 0, output.x, 0, input.length);
+		System.arraycopy(input.v, 0, output.v, 0, input.length);
+		System.arraycopy(input.a, 0, output.a, 0, input.length);
+		for(int length : lengths) {
+			int inputLength = output.length;
+			output.setLength(inputLength + length - 1);
+			filterInPlace(output.x, inputLength, length, window);
+			filterInPlace(output.v, inputLength, length, window);
+			filterInPlace(output.a, inputLength, length, window);
+		}
+	}
+	
+	/**
+	 * Filters a single column of a profile.
+	 * 
+	 * @param input the column to smooth
+	 * @param inputLength the number of samples in the column
+	 * @param length the length of the boxcar filter to use
+	 * @param output the array to write the inputLength + length - 1 smoothed samples into
+	 */
+	public static void filter(double[] input, int inputLength, int length, double[] output) {
+		int outputLength = inputLength + length - 1;
+		double sum = input[0] * length;
+		for(int i = 0;i < outputLength;i++) {
+			if((outputLength - 1 - i) % length == 0) {
+				sum = 0;
+				for(int k = i - length + 1;k <= i;k++) {
+					sum += input[Math.min(Math.max(k, 0), inputLength-1)];
+				}
+			}
+			else {
+				// Slide the window forward by one sample
+				int index = Math.min(i, inputLength-1);
+				int oldIndex = Math.min(Math.max(i - length, 0), inputLength-1);
+				sum += input[index] - input[oldIndex];
+			}
+			output[i] = sum / length;
+		}
+	}
+	
+	/**
+	 * Filters a single column of a profile in place.
+	 * The inputs are overwritten as they are read, so the window is kept in a ring buffer.
+	 */
+	private static void filterInPlace(double[] values, int inputLength, int length, double[] window) {
+		double last = values[inputLength-1];
+		for(int i = 0;i < length;i++) {
+			window[i] = values[0];
+		}
+		int outputLength = inputLength + length - 1;
+		double sum = values[0] * length;
+		// j -> the oldest sample in the window, which the new sample replaces
+		for(int i = 0, j = 0;i < outputLength;i++) {
+			double value = i < inputLength ? values[i] : last;
+			sum += value - window[j];
+			window[j] = value;
+			j = j + 1 == length ? 0 : j + 1;
+			if((outputLength - 1 - i) % length == 0) {
+				// Sum from the oldest sample to the newest
+				sum = 0;
+				for(int k = 0;k < length;k++) {
+					sum += window[j + k < length ? j + k : j + k - length];
+				}
+			}
+			values[i] = sum / length;
+		}
+	}
 }
@@ -2,6 +2,8 @@ package lib.frc1747.motion_profile.gui._1d;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 
 import javax.swing.JCheckBoxMenuItem;
@@ -62,6 +64,13 @@ public class OfflineProfileGeneratorFrame extends JFrame implements ActionListen
 		add(panel);
 		setSize(800, 600);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		// Closing exits, so finish saving first
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				panel.finishSaving();
+			}
+		});
 		setTitle("Offline Motion Profile Generator");
 		setVisible(true);
 	}
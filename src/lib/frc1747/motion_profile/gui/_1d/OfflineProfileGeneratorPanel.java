@@ -3,12 +3,22 @@ package lib.frc1747.motion_profile.gui._1d;
 import java.awt.GridLayout;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JPanel;
 
+import lib.frc1747.motion_profile.OffHeapProfile;
 import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.batch.ProfileCsvWriter;
+import lib.frc1747.motion_profile.batch.ProfileFile;
+import lib.frc1747.motion_profile.generator._1d.IncrementalProfileGenerator;
 import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.SegmentedProfileGenerator;
 
 /**
  * Panel that processes the 1D profile.
@@ -21,11 +31,15 @@ public class OfflineProfileGeneratorPanel extends JPanel {
 	
 	private SingleGraphPanel translationalPanel;
 	private SingleGraphPanel rotationalPanel;
+	private SegmentedProfileGenerator generator;
+	private IncrementalProfileGenerator incrementalGenerator;
+	private ProfileCsvWriter writer;
+	private ExecutorService saver;
 
 	private double[][] waypointLimits;
 	private double[][] profileSegments;
-	private double[][] savedTimePoints;
-	private double[][] savedAngularTimePoints;
+	private Trajectory savedTimePoints;
+	private Trajectory savedAngularTimePoints;
 
 	private double translationScale;
 	private double rotationScale;
@@ -57,6 +71,15 @@ public class OfflineProfileGeneratorPanel extends JPanel {
 		
 		zeroStart = true;
 		zeroEnd = true;
+		
+		generator = new SegmentedProfileGenerator();
+		incrementalGenerator = new IncrementalProfileGenerator();
+		writer = new ProfileCsvWriter();
+		saver = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Profile saver");
+			thread.setDaemon(true);
+			return thread;
+		});
 
 		v_max = Parameters.V_MAX;
 		a_max = Parameters.A_MAX;
@@ -80,39 +103,13 @@ public class OfflineProfileGeneratorPanel extends JPanel {
 		if(profileSegments == null) return;
 		this.profileSegments = profileSegments;
 		
-		double[][] profilePoints = ProfileGenerator.primaryProfileIntegrate(profileSegments, 0);
+		Trajectory profilePoints = Trajectory.fromRows(incrementalGenerator.update(profileSegments, waypointLimits,
+				this.v_max, this.a_max, this.w_width, zeroStart, zeroEnd));
 		double[] angularProfilePoints = ProfileGenerator.secondaryProfileIntegrate(profileSegments, 1);
 		
-		ProfileGenerator.skidSteerLimitVelocities(profilePoints, profileSegments,
-				this.v_max, this.a_max, this.w_width);
-
-		// Apply per point limits
-		for(int i = 0, j = 0;i < profilePoints.length && j < waypointLimits.length;i++) {
-			if(Math.abs(waypointLimits[j][0] - profilePoints[i][0]) < 1E-3) {
-				if(Math.abs(waypointLimits[j][1]) < 1E3) {
-					profilePoints[i][1] = waypointLimits[j][1];
-				}
-				if(Math.abs(waypointLimits[j][2]) < 1E3) {
-					profilePoints[i][2] = waypointLimits[j][2];
-				}
-				j++;
-			}
-		}
-
-		// Force the max everything at the endpoints of the profile to zero
-		if(zeroStart) {
-			profilePoints[0][1] = 0;
-			profilePoints[0][2] = 0;
-		}
-		if(zeroEnd) {
-			profilePoints[profilePoints.length-1][1] = 0;
-			profilePoints[profilePoints.length-1][2] = 0;
-		}
-			
-		ProfileGenerator.limitVelocities(profilePoints);
-		double[] profileTimes = ProfileGenerator.timesFromPoints(profilePoints);
-		double[][] timePoints = ProfileGenerator.profileFromPoints(profilePoints, profileTimes, this.dt);
-		double[][] angularTimePoints = ProfileGenerator.synchronizedProfileFromProfile(timePoints,
+		double[] profileTimes = incrementalGenerator.getProfileTimes();
+		Trajectory timePoints = generator.profileFromPoints(profilePoints, profileTimes, this.dt);
+		Trajectory angularTimePoints = ProfileGenerator.synchronizedProfileFromProfile(timePoints,
 				profilePoints,
 				angularProfilePoints,
 				profileTimes,
@@ -121,19 +118,25 @@ public class OfflineProfileGeneratorPanel extends JPanel {
 		// Calculate the maximum distance and rotation so it can be displayed
 		double xmax = 0;
 		for(int i = 1;i < timePoints.length;i++) {
-			if(Math.abs(timePoints[i][0]) > xmax)
-				xmax = Math.abs(timePoints[i][0]);
+			if(Math.abs(timePoints.x[i]) > xmax)
+				xmax = Math.abs(timePoints.x[i]);
 		}
 		double axmax = 0;
 		for(int i = 1;i < angularTimePoints.length;i++) {
-			if(Math.abs(angularTimePoints[i][0]) > axmax)
-				axmax = Math.abs(angularTimePoints[i][0]);
+			if(Math.abs(angularTimePoints.x[i]) > axmax)
+				axmax = Math.abs(angularTimePoints.x[i]);
 		}
 		
 		// Limit the maximum jerk
+		// The filtered profiles are sized up front so filtering writes straight into them
 		double jerkFilterTime = this.a_max/this.j_max;
-		timePoints = BoxcarFilter.multiFilter(timePoints, (int)Math.ceil(jerkFilterTime/this.dt));
-		angularTimePoints = BoxcarFilter.multiFilter(angularTimePoints, (int)Math.ceil(jerkFilterTime/this.dt));
+		int filterLength = (int)Math.ceil(jerkFilterTime/this.dt);
+		Trajectory filteredTimePoints = new Trajectory(timePoints.length + filterLength - 1);
+		Trajectory filteredAngularTimePoints = new Trajectory(angularTimePoints.length + filterLength - 1);
+		BoxcarFilter.multiFilter(timePoints, filterLength, filteredTimePoints);
+		BoxcarFilter.multiFilter(angularTimePoints, filterLength, filteredAngularTimePoints);
+		timePoints = filteredTimePoints;
+		angularTimePoints = filteredAngularTimePoints;
 		
 		// Display the two profiles
 		translationalPanel.setProfile(timePoints, this.dt,
@@ -154,25 +157,67 @@ public class OfflineProfileGeneratorPanel extends JPanel {
 		repaint();
 	}
 	
+	/**
+	 * Saves the profile on a background thread, so large profiles do not block the GUI.
+	 * Files ending in {@link ProfileFile#EXTENSION} are saved as binary profiles, and anything else as text.
+	 * The profile is written next to the file and then moved over it, so the file is never left half written.
+	 * 
+	 * @param file the file to write
+	 */
 	public void saveProfile(File file) {
-		if(savedTimePoints != null) {
+		if(savedTimePoints == null) return;
+		
+		// The saved points are replaced instead of changed, so they can be written while the GUI continues
+		Trajectory timePoints = savedTimePoints;
+		Trajectory angularTimePoints = savedAngularTimePoints;
+		double translationScale = this.translationScale;
+		double rotationScale = this.rotationScale;
+		ProfileFile profileFile = new ProfileFile();
+		profileFile.v_max = v_max;
+		profileFile.a_max = a_max;
+		profileFile.j_max = j_max;
+		profileFile.w_width = w_width;
+		profileFile.dt = dt;
+		profileFile.i_sample_count = i_sample_count;
+		profileFile.i_sample_length = i_sample_length;
+		
+		saver.execute(() -> {
+			File temporary = null;
 			try {
-				PrintWriter writer = new PrintWriter(file);
-				writer.format("%d, %d\n", 2, savedTimePoints.length);
-				for(int i = 0;i < savedTimePoints.length;i++) {
-					writer.format("%.4f, %.4f, %.4f, %.4f, %.4f, %.4f\n",
-							translationScale * savedTimePoints[i][0],
-							translationScale * savedTimePoints[i][1],
-							translationScale * savedTimePoints[i][2],
-							rotationScale * savedAngularTimePoints[i][0],
-							rotationScale * savedAngularTimePoints[i][1],
-							rotationScale * savedAngularTimePoints[i][2]);
+				temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(),
+						file.getName(), ".tmp").toFile();
+				OffHeapProfile profile = OffHeapProfile.fromProfiles(timePoints, angularTimePoints,
+						translationScale, rotationScale);
+				if(file.getName().endsWith(ProfileFile.EXTENSION)) {
+					profileFile.profile = profile;
+					ProfileFile.write(temporary, profileFile);
+				}
+				else {
+					writer.write(temporary, profile);
 				}
-				writer.close();
+				Files.move(temporary.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 			}
 			catch (IOException ex) {
+				if(temporary != null) {
+					temporary.delete();
+				}
 				ex.printStackTrace();
 			}
+		});
+	}
+	
+	/**
+	 * Stops accepting profiles to save, and waits for the ones already started to be written.
+	 * This should be called before exiting, because the saving thread does not keep the program running.
+	 */
+	public void finishSaving() {
+		saver.shutdown();
+		try {
+			saver.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -9,6 +9,8 @@ import java.awt.RenderingHints;
 
 import javax.swing.JPanel;
 
+import lib.frc1747.motion_profile.Trajectory;
+
 /**
  * Panel that displays the position, velocity, and acceleration of one component of the motion (translational, rotational).
  * 
@@ -20,7 +22,7 @@ public class SingleGraphPanel extends JPanel {
 	
 	private String title;
 	private int fontSize = 14;
-	private double[][] profile;
+	private Trajectory profile;
 	private double dt;
 	private double amax;
 	private double vmax;
@@ -38,8 +40,7 @@ public class SingleGraphPanel extends JPanel {
 		this.tUnit = tUnit;
 	}
 	
-	// The format is [x0, v0, a0; x1, v1, a1; ...]
-	public void setProfile(double[][] profile, double dt, 
+	public void setProfile(Trajectory profile, double dt, 
 			double amax, double vmax, double xmax, double tmax) {
 		this.profile = profile;
 		this.dt = dt;
@@ -124,25 +125,25 @@ public class SingleGraphPanel extends JPanel {
 			for(int i = 1;i < profile.length;i++) {
 				g.drawLine(
 						(int)(graphOffset + graphWidth * (i-1) * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i-1][2] * graphHeight/2 / amax),
+						(int)(fontSize + graphHeight/2 - profile.a[i-1] * graphHeight/2 / amax),
 						(int)(graphOffset + graphWidth * i * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i][2] * graphHeight/2 / amax));
+						(int)(fontSize + graphHeight/2 - profile.a[i] * graphHeight/2 / amax));
 			}
 			g.setColor(Color.RED);
 			for(int i = 1;i < profile.length;i++) {
 				g.drawLine(
 						(int)(graphOffset + graphWidth * (i-1) * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i-1][1] * graphHeight/2 / vmax),
+						(int)(fontSize + graphHeight/2 - profile.v[i-1] * graphHeight/2 / vmax),
 						(int)(graphOffset + graphWidth * i * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i][1] * graphHeight/2 / vmax));
+						(int)(fontSize + graphHeight/2 - profile.v[i] * graphHeight/2 / vmax));
 			}
 			g.setColor(Color.BLUE);
 			for(int i = 1;i < profile.length;i++) {
 				g.drawLine(
 						(int)(graphOffset + graphWidth * (i-1) * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i-1][0] * graphHeight/2 / xmax),
+						(int)(fontSize + graphHeight/2 - profile.x[i-1] * graphHeight/2 / xmax),
 						(int)(graphOffset + graphWidth * i * dt / tmax),
-						(int)(fontSize + graphHeight/2 - profile[i][0] * graphHeight/2 / xmax));
+						(int)(fontSize + graphHeight/2 - profile.x[i] * graphHeight/2 / xmax));
 			}
 		}
 	}
@@ -2,6 +2,8 @@ package lib.frc1747.motion_profile.gui._2d;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 
 import javax.swing.ButtonGroup;
@@ -31,6 +33,7 @@ public class OfflineSplineGeneratorFrame extends JFrame implements ActionListene
 	private JMenuItem openWaypoints;
 	private ButtonGroup modeGroup;
 	private JFileChooser chooser;
+	private OfflineProfileGeneratorFrame profile;
 	
 	public OfflineSplineGeneratorFrame() {
 		chooser = new JFileChooser();
@@ -72,6 +75,15 @@ public class OfflineSplineGeneratorFrame extends JFrame implements ActionListene
 		
 		setSize(800, 600);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		// Closing exits, so finish saving the profile first
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				if(profile != null) {
+					profile.getProfilePanel().finishSaving();
+				}
+			}
+		});
 		setTitle("Offline Motion Trajectory Generator");
 		setVisible(true);
 	}
@@ -104,6 +116,7 @@ public class OfflineSplineGeneratorFrame extends JFrame implements ActionListene
 	}
 
 	public void setProfileFrame(OfflineProfileGeneratorFrame profile) {
+		this.profile = profile;
 		panel.setProfilePanel(profile.getProfilePanel());
 	}
 }
\ No newline at end of file
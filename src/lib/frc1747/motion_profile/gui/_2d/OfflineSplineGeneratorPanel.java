@@ -11,16 +11,16 @@ import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 
 import javax.swing.JPanel;
 
+import lib.frc1747.motion_profile.batch.WaypointFile;
 import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineCache;
 import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
 import lib.frc1747.motion_profile.generator._2d.Waypoint;
 import lib.frc1747.motion_profile.gui._1d.OfflineProfileGeneratorPanel;
@@ -63,6 +63,7 @@ public class OfflineSplineGeneratorPanel
 	//Waypoints
 	private ArrayList<Waypoint> waypoints;
 	private QuinticBezier splines[];
+	private SplineCache splineCache;
 	
 	//Output consumer
 	private OfflineProfileGeneratorPanel profilePanel;
@@ -86,27 +87,19 @@ public class OfflineSplineGeneratorPanel
 		
 		//Initialize waypoints
 		waypoints = new ArrayList<>();
+		splineCache = new SplineCache();
 	}
 	
 	public void recalculateSplines() {
 		if(waypoints.size() >= 2) {
-			splines = SplineGenerator.splinesFromWaypoints(
-					waypoints.toArray(new Waypoint[0]));
-			double[][] waypointLimits = new double[splines.length+1][5];
-			for(int i = 0;i < waypointLimits.length;i++) {
-				waypointLimits[i][1] = waypoints.get(i).m_sv;
-				waypointLimits[i][2] = waypoints.get(i).m_sa;
-				waypointLimits[i][3] = waypoints.get(i).m_av;
-				waypointLimits[i][4] = waypoints.get(i).m_aa;
-			}
-			waypointLimits[0][0] = 0;
-			for(int i = 1;i < waypointLimits.length;i++) {
-				waypointLimits[i][0] = waypointLimits[i-1][0] +
-						splines[i-1].uniformTimeArcLength(profilePanel.i_sample_count) * (waypoints.get(i-1).reverse ? -1 : 1);
-			}
+			// Only the splines next to a changed waypoint are sampled again
+			Waypoint[] waypointArray = waypoints.toArray(new Waypoint[0]);
+			splineCache.update(waypointArray, profilePanel.i_sample_count, profilePanel.i_sample_length);
+			splines = splineCache.getSplines();
+			double[][] waypointLimits = SplineGenerator.waypointLimitsFromArcLengths(waypointArray,
+					splineCache.getArcLengths());
 			profilePanel.setWaypointLimits(waypointLimits);
-			double[][] profileSetpoints = SplineGenerator.flattenProfile(splines,
-					profilePanel.i_sample_count, profilePanel.i_sample_length);
+			double[][] profileSetpoints = splineCache.flattenProfile();
 			profilePanel.setProfileSetpoints(profileSetpoints);
 		}
 		else {
@@ -461,50 +454,21 @@ public class OfflineSplineGeneratorPanel
 		}
 	}
 	public void openWaypoints(File file) {
-		waypoints.clear();
 		try {
-			BufferedReader reader = new BufferedReader(new FileReader(file));
-			String line = null;
-			while((line = reader.readLine()) != null) {
-				if(!line.isEmpty()) {
-					String[] parts = line.split(",");
-					if(parts[0].equals("Parameters")) {
-						profilePanel.v_max = Double.parseDouble(parts[1].trim());
-						profilePanel.a_max = Double.parseDouble(parts[2].trim());
-						profilePanel.j_max = Double.parseDouble(parts[3].trim());
-						profilePanel.w_width = Double.parseDouble(parts[4].trim());
-						profilePanel.r_width = Double.parseDouble(parts[5].trim());
-						profilePanel.r_length = Double.parseDouble(parts[6].trim());
-						profilePanel.dt = Double.parseDouble(parts[7].trim());
-						profilePanel.i_sample_count = Integer.parseInt(parts[8].trim());
-						profilePanel.i_sample_length = Double.parseDouble(parts[9].trim());
-					}
-					else if(parts[0].equals("-")) {}
-					else {
-						Waypoint waypoint = new Waypoint();
-						waypoint.x = Double.parseDouble(parts[0].trim());
-						waypoint.y = Double.parseDouble(parts[1].trim());
-						waypoint.v_t = Double.parseDouble(parts[2].trim());
-						waypoint.v_m = Double.parseDouble(parts[3].trim());
-						waypoint.a_t = Double.parseDouble(parts[4].trim());
-						waypoint.a_m = Double.parseDouble(parts[5].trim());
-						if(parts.length >= 10) {
-							waypoint.m_sv = Double.parseDouble(parts[6].trim());
-							waypoint.m_sa = Double.parseDouble(parts[7].trim());
-							waypoint.m_av = Double.parseDouble(parts[8].trim());
-							waypoint.m_aa = Double.parseDouble(parts[9].trim());
-						}
-						else {
-							waypoint.m_sv = 1E6;
-							waypoint.m_sa = 1E6;
-							waypoint.m_av = 1E6;
-							waypoint.m_aa = 1E6;
-						}
-						waypoints.add(waypoint);
-					}
-				}
+			WaypointFile waypointFile = WaypointFile.read(file);
+			if(waypointFile.hasParameters) {
+				profilePanel.v_max = waypointFile.v_max;
+				profilePanel.a_max = waypointFile.a_max;
+				profilePanel.j_max = waypointFile.j_max;
+				profilePanel.w_width = waypointFile.w_width;
+				profilePanel.r_width = waypointFile.r_width;
+				profilePanel.r_length = waypointFile.r_length;
+				profilePanel.dt = waypointFile.dt;
+				profilePanel.i_sample_count = waypointFile.i_sample_count;
+				profilePanel.i_sample_length = waypointFile.i_sample_length;
 			}
-			reader.close();
+			waypoints.clear();
+			waypoints.addAll(waypointFile.waypoints);
 			recalculateSplines();
 			repaint();
 		}
@@ -512,4 +476,4 @@ public class OfflineSplineGeneratorPanel
 			ex.printStackTrace();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package lib.frc1747.motion_profile.test;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class AdaptiveFlattenTest {
+	public static void main(String[] args) {
+		// A constant radius arc cut into segments of alternating length should be limited
+		// the same as one cut into equal segments
+		double radius = 3;
+		SegmentBuffer arc = new SegmentBuffer(100);
+		for(int i = 0;i < arc.length;i++) {
+			arc.ds[i] = i % 2 == 0 ? 0.01 : 0.03;
+			arc.dtheta[i] = arc.ds[i] / radius;
+		}
+		Trajectory arcPoints = ProfileGenerator.primaryProfileIntegrate(arc);
+		ProfileGenerator.skidSteerLimitVelocities(arcPoints, arc,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH);
+		double expected = Parameters.V_MAX / (1 + Parameters.W_WIDTH/2 / radius);
+		// The points next to the ends are also limited by the ends, which are treated differently
+		double maxArcError = 0;
+		for(int i = 2;i < arc.length-1;i++) {
+			maxArcError = Math.max(maxArcError, Math.abs(arcPoints.v[i] - expected));
+		}
+		
+		// A long straightaway followed by a turn
+		Waypoint[] waypoints = new Waypoint[3];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].v_m = 5;
+			waypoints[i].m_sv = 1E6;
+			waypoints[i].m_sa = 1E6;
+			waypoints[i].m_av = 1E6;
+			waypoints[i].m_aa = 1E6;
+		}
+		waypoints[1].y = 15;
+		waypoints[2].x = 5;
+		waypoints[2].y = 20;
+		waypoints[2].v_t = -Math.PI/2;
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		double[][] waypointLimits = SplineGenerator.waypointLimitsFromWaypoints(waypoints, splines,
+				Parameters.I_SAMPLE_COUNT);
+		
+		SegmentBuffer uniform = new SegmentBuffer(0);
+		SegmentBuffer adaptive = new SegmentBuffer(0);
+		SplineGenerator.inverseFlattenProfile(splines, Parameters.I_SAMPLE_LENGTH, 1E-6, false, uniform);
+		SplineGenerator.adaptiveFlattenProfile(splines, Parameters.I_SAMPLE_LENGTH, 0.5, 0.005, 1E-6, adaptive);
+		
+		// Both should cover the same distance and turn the same amount
+		double lengthError = Math.abs(sum(uniform.ds, uniform.length) - sum(adaptive.ds, adaptive.length));
+		double turnError = Math.abs(sum(uniform.dtheta, uniform.length) - sum(adaptive.dtheta, adaptive.length));
+		
+		// And generate nearly the same profile
+		TrajectoryPipeline uniformPipeline = new TrajectoryPipeline().setWaypointLimits(waypointLimits);
+		TrajectoryPipeline adaptivePipeline = new TrajectoryPipeline().setWaypointLimits(waypointLimits);
+		uniformPipeline.generate(uniform);
+		adaptivePipeline.generate(adaptive);
+		Trajectory uniformPoints = uniformPipeline.getTimePoints();
+		Trajectory adaptivePoints = adaptivePipeline.getTimePoints();
+		double maxVelocityError = 0;
+		for(int i = 0;i < Math.min(uniformPoints.length, adaptivePoints.length);i++) {
+			maxVelocityError = Math.max(maxVelocityError, Math.abs(uniformPoints.v[i] - adaptivePoints.v[i]));
+		}
+		
+		// No segment should be longer than the max length, including the last one,
+		// so try straight lines whose lengths cover a whole max length
+		double maxLength = maxLength(adaptive);
+		Waypoint[] line = {waypoints[0], new Waypoint()};
+		line[1].v_m = 5;
+		SegmentBuffer lineSegments = new SegmentBuffer(0);
+		for(int i = 0;i < 500;i++) {
+			line[1].y = 5 + i * 0.001;
+			SplineGenerator.adaptiveFlattenProfile(SplineGenerator.splinesFromWaypoints(line),
+					Parameters.I_SAMPLE_LENGTH, 0.5, 0.005, 1E-6, lineSegments);
+			maxLength = Math.max(maxLength, maxLength(lineSegments));
+		}
+		
+		System.out.format("Arc error: %g, Segments: %d -> %d, Length error: %g, Turn error: %g, "
+				+ "Time steps: %d -> %d, Max velocity error: %g, Longest segment: %g\n",
+				maxArcError, uniform.length, adaptive.length, lengthError, turnError,
+				uniformPoints.length, adaptivePoints.length, maxVelocityError, maxLength);
+		if(maxArcError > 1E-9) {
+			throw new AssertionError("Segments of different lengths change the limits of a constant radius arc");
+		}
+		if(adaptive.length * 10 > uniform.length) {
+			throw new AssertionError("Adaptive flattening did not reduce the number of segments");
+		}
+		if(lengthError > 1E-6 || turnError > 1E-9) {
+			throw new AssertionError("Adaptive flattening does not cover the same path");
+		}
+		if(Math.abs(uniformPoints.length - adaptivePoints.length) > 2 || maxVelocityError > 0.035) {
+			throw new AssertionError("Adaptive flattening does not generate the same profile");
+		}
+		if(maxLength > 0.5) {
+			throw new AssertionError("Adaptive flattening made a segment " + maxLength + " long");
+		}
+	}
+	
+	private static double maxLength(SegmentBuffer segments) {
+		double maxLength = 0;
+		for(int i = 0;i < segments.length;i++) {
+			maxLength = Math.max(maxLength, Math.abs(segments.ds[i]));
+		}
+		return maxLength;
+	}
+	
+	private static double sum(double[] values, int length) {
+		double sum = 0;
+		for(int i = 0;i < length;i++) {
+			sum += values[i];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,159 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Random;
+
+import lib.frc1747.motion_profile.Util;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class ArcLengthTest {
+	public static void main(String[] args) {
+		Random random = new Random(1747);
+		double tolerance = 1E-6;
+		double maxError = 0;
+		double maxTrapezoidError = 0;
+		double maxEndError = 0;
+		double maxHeadingError = 0;
+		double maxCurvatureError = 0;
+		for(int n = 0;n < 50;n++) {
+			Waypoint w1 = randomWaypoint(random);
+			Waypoint w2 = randomWaypoint(random);
+			QuinticBezier spline = new QuinticBezier(w1, w2, false);
+			
+			// A very fine trapezoid rule is accurate enough to compare against
+			double reference = spline.uniformTimeArcLength(200000);
+			maxError = Math.max(maxError, Math.abs(spline.arcLength(tolerance) - reference));
+			maxTrapezoidError = Math.max(maxTrapezoidError, Math.abs(spline.uniformTimeArcLength(100) - reference));
+			
+			// Pieces of the curve should add up to the whole
+			double pieces = spline.arcLength(0, 0.3, tolerance/2) + spline.arcLength(0.3, 1, tolerance/2);
+			maxError = Math.max(maxError, Math.abs(pieces - reference));
+			
+			// Each inverted segment should end its share of the arc length along the curve
+			double[][] inverse = spline.inverseLengthSegmentData(0.005, tolerance);
+			double[][] curvature = spline.inverseLengthSegmentData(0.005, tolerance, true);
+			double[] times = spline.inverseLengthTimes(0.005, tolerance);
+			if(times.length != inverse.length + 1 || times[0] != 0 || times[inverse.length] != 1) {
+				throw new AssertionError("Segment ends do not match the segments");
+			}
+			double sampleLength = inverse[0][0];
+			for(int i = 0;i <= inverse.length;i++) {
+				maxEndError = Math.max(maxEndError,
+						Math.abs(spline.arcLength(0, times[i], tolerance / 100) - i * sampleLength));
+			}
+			
+			// and turn as much as a fine lookup table says it should between the same arc lengths
+			double[][] table = spline.uniformTimeArcLengthSample(200000);
+			double previousHeading = spline.getHeading(0);
+			for(int i = 0, j = 0;i < inverse.length;i++) {
+				double s = (i+1) * sampleLength;
+				double t = 1;
+				if(i < inverse.length - 1) {
+					while(j < table.length - 2 && table[j+1][1] < s) {
+						j++;
+					}
+					t = Util.linearInterpolate(s, table[j][1], table[j+1][1], table[j][0], table[j+1][0]);
+				}
+				double heading = spline.getHeading(t);
+				maxHeadingError = Math.max(maxHeadingError,
+						Math.abs(inverse[i][1] - headingChange(previousHeading, heading)));
+				maxCurvatureError = Math.max(maxCurvatureError, Math.abs(curvature[i][1] - inverse[i][1]));
+				previousHeading = heading;
+			}
+		}
+		
+		System.out.format("Max error: %g, 100 sample trapezoid error: %g, segment end error: %g, heading error: %g, "
+				+ "curvature error: %g\n",
+				maxError, maxTrapezoidError, maxEndError, maxHeadingError, maxCurvatureError);
+		if(maxError > tolerance) {
+			throw new AssertionError("Arc length is outside of the tolerance");
+		}
+		if(maxEndError > tolerance) {
+			throw new AssertionError("Segment ends are outside of the tolerance");
+		}
+		if(maxHeadingError > 1E-5) {
+			throw new AssertionError("Inverted segments do not turn as much as the lookup table");
+		}
+		if(maxCurvatureError > 1E-9) {
+			throw new AssertionError("Integrated curvature does not match the change in heading");
+		}
+		
+		// Integrating the curvature should turn as much as the headings, and take less time
+		QuinticBezier[] splines = new QuinticBezier[50];
+		for(int n = 0;n < splines.length;n++) {
+			splines[n] = new QuinticBezier(randomWaypoint(random), randomWaypoint(random), false);
+		}
+		int count = 2001;
+		double[] t = new double[count];
+		for(int i = 0;i < count;i++) {
+			t[i] = (double)i / (count-1);
+		}
+		double[] headings = new double[count];
+		double[] turns = new double[count];
+		long headingTime = Long.MAX_VALUE;
+		long turnTime = Long.MAX_VALUE;
+		for(int run = 0;run < 10;run++) {
+			long start = System.nanoTime();
+			for(QuinticBezier spline : splines) {
+				spline.getHeadings(t, count, headings);
+				for(int i = 0;i < count-1;i++) {
+					turns[i] = headingChange(headings[i], headings[i+1]);
+				}
+			}
+			headingTime = Math.min(headingTime, System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for(QuinticBezier spline : splines) {
+				spline.getTurns(t, count, turns, 0);
+			}
+			turnTime = Math.min(turnTime, System.nanoTime() - start);
+		}
+		maxCurvatureError = 0;
+		for(QuinticBezier spline : splines) {
+			spline.getHeadings(t, count, headings);
+			spline.getTurns(t, count, turns, 0);
+			for(int i = 0;i < count-1;i++) {
+				maxCurvatureError = Math.max(maxCurvatureError,
+						Math.abs(turns[i] - headingChange(headings[i], headings[i+1])));
+			}
+		}
+		System.out.format("%d turns from headings: %.2f ms, from curvature: %.2f ms, %.1fx faster, error: %g\n",
+				splines.length * (count-1), headingTime / 1E6, turnTime / 1E6, (double)headingTime / turnTime,
+				maxCurvatureError);
+		if(maxCurvatureError > 2E-9) {
+			throw new AssertionError("Integrated curvature does not match the change in heading");
+		}
+		if(turnTime > headingTime) {
+			throw new AssertionError("Integrating the curvature is slower than finding the headings");
+		}
+		
+		// A curve that starts stopped has no heading rate at its start, so that segment uses the headings
+		Waypoint stopped = randomWaypoint(random);
+		stopped.v_m = 0;
+		QuinticBezier spline = new QuinticBezier(stopped, randomWaypoint(random), false);
+		spline.getHeadings(t, count, headings);
+		spline.getTurns(t, count, turns, 0);
+		double expected = headingChange(headings[0], headings[1]);
+		if(Double.isFinite(spline.getHeadingRate(0)) || turns[0] != expected) {
+			throw new AssertionError("Stopped start turned " + turns[0] + " instead of " + expected);
+		}
+	}
+	
+	private static double headingChange(double from, double to) {
+		double delta = to - from;
+		if(delta < -Math.PI) delta += Math.PI * 2;
+		if(delta >  Math.PI) delta -= Math.PI * 2;
+		return delta;
+	}
+	
+	private static Waypoint randomWaypoint(Random random) {
+		Waypoint waypoint = new Waypoint();
+		waypoint.x = random.nextGaussian() * 5;
+		waypoint.y = random.nextGaussian() * 5;
+		waypoint.v_t = random.nextDouble() * Math.PI * 2;
+		waypoint.v_m = 2 + random.nextDouble() * 8;
+		waypoint.a_t = random.nextDouble() * Math.PI * 2;
+		waypoint.a_m = random.nextDouble() * 5;
+		return waypoint;
+	}
+}
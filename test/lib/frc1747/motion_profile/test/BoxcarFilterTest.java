@@ -0,0 +1,75 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Random;
+
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.gui._1d.BoxcarFilter;
+
+public class BoxcarFilterTest {
+	public static void main(String[] args) {
+		Random random = new Random(1747);
+		double maxError = 0;
+		// The window is shared by every length, so it should not carry anything between filters
+		double[] window = new double[100];
+		for(int n = 0;n < 50;n++) {
+			int inputLength = 1 + random.nextInt(500);
+			int length = 1 + random.nextInt(100);
+			Trajectory input = new Trajectory(inputLength);
+			for(int i = 0;i < inputLength;i++) {
+				input.x[i] = random.nextGaussian() * 10;
+				input.v[i] = random.nextGaussian();
+				input.a[i] = random.nextGaussian() * 20;
+			}
+			
+			// Every variant should match summing the whole window for every sample
+			double[][] expected = filter(input.toRows(), length);
+			maxError = Math.max(maxError, maxError(expected, BoxcarFilter.multiFilter(input.toRows(), length)));
+			maxError = Math.max(maxError, maxError(expected, BoxcarFilter.multiFilter(input, length).toRows()));
+			Trajectory inPlace = Trajectory.fromRows(input.toRows());
+			BoxcarFilter.multiFilterInPlace(inPlace, length, window);
+			maxError = Math.max(maxError, maxError(expected, inPlace.toRows()));
+			
+			// A cascade should match filtering the output of each filter
+			int[] lengths = {length, 1 + random.nextInt(50), 1 + random.nextInt(50)};
+			for(int i = 1;i < lengths.length;i++) {
+				expected = filter(expected, lengths[i]);
+			}
+			Trajectory cascade = new Trajectory(0);
+			BoxcarFilter.cascadeFilter(input, lengths, cascade);
+			maxError = Math.max(maxError, maxError(expected, cascade.toRows()));
+		}
+		
+		System.out.format("Max error: %g\n", maxError);
+		if(maxError > 1E-12) {
+			throw new AssertionError("Running sum boxcar filter does not match the full sum");
+		}
+	}
+	
+	private static double[][] filter(double[][] input, int length) {
+		double[][] output = new double[input.length + length - 1][input[0].length];
+		for(int i = 0;i < output.length;i++) {
+			for(int j = 0;j < output[0].length;j++) {
+				for(int k = i - length + 1;k <= i;k++) {
+					output[i][j] += input[Math.min(Math.max(k, 0), input.length-1)][j];
+				}
+				output[i][j] /= length;
+			}
+		}
+		return output;
+	}
+	
+	private static double maxError(double[][] expected, double[][] actual) {
+		if(expected.length != actual.length) {
+			throw new AssertionError("Filtered profile has " + actual.length + " samples instead of " + expected.length);
+		}
+		double maxError = 0;
+		// The window is shared by every length, so it should not carry anything between filters
+		double[] window = new double[100];
+		for(int i = 0;i < expected.length;i++) {
+			for(int j = 0;j < expected[0].length;j++) {
+				maxError = Math.max(maxError, Math.abs(expected[i][j] - actual[i][j]));
+			}
+		}
+		return maxError;
+	}
+}
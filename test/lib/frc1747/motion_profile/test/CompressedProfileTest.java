@@ -0,0 +1,180 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.CompressedProfileReader;
+import lib.frc1747.motion_profile.batch.CompressedProfileWriter;
+import lib.frc1747.motion_profile.batch.ProfileFile;
+import lib.frc1747.motion_profile.batch.WaypointFile;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryCursor;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+
+public class CompressedProfileTest {
+	public static void main(String[] args) throws IOException {
+		File input = File.createTempFile("waypoints", ".csv");
+		File output = File.createTempFile("profile", CompressedProfileWriter.EXTENSION);
+		input.deleteOnExit();
+		output.deleteOnExit();
+		try(PrintWriter writer = new PrintWriter(input)) {
+			writer.println("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050");
+			writer.println("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000");
+			writer.println("4.0000, 6.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+			writer.println("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 0.0000");
+			writer.println("-6.0000, 18.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+		}
+		BatchGenerator generator = new BatchGenerator();
+		TrajectoryPipeline pipeline = generator.generate(WaypointFile.read(input));
+		Trajectory timePoints = pipeline.getTimePoints();
+		Trajectory angularTimePoints = pipeline.getAngularTimePoints();
+		OffHeapProfile expected = OffHeapProfile.fromProfiles(timePoints, angularTimePoints, 1, 1);
+		int length = timePoints.length;
+		
+		// Streaming should give exactly the generated profile, without filling in the pipeline's profiles
+		timePoints.x[length-1] = Double.NaN;
+		TrajectoryCursor cursor = generator.stream(WaypointFile.read(input));
+		double[] timePoint = new double[3];
+		double[] angularTimePoint = new double[3];
+		if(cursor.getLength() != length) {
+			throw new AssertionError("Cursor has " + cursor.getLength() + " points instead of " + length);
+		}
+		for(int i = 0;i < length;i++) {
+			cursor.next(timePoint, angularTimePoint);
+			for(int j = 0;j < 3;j++) {
+				same(expected.get(j, i), timePoint[j], i, j);
+				same(expected.get(j+3, i), angularTimePoint[j], i, j+3);
+			}
+		}
+		if(!Double.isNaN(timePoints.x[length-1])) {
+			throw new AssertionError("Streaming filled in the pipeline's profile");
+		}
+		
+		// Without a cache, compressed profiles are saved straight from the cursor
+		if(generator.generate(input, output) != length) {
+			throw new AssertionError("Wrong number of points saved");
+		}
+		long binaryBytes = ProfileFile.HEADER_BYTES + (long)length * OffHeapProfile.COLUMNS * 8;
+		System.out.format("%d points in %d bytes, %.1fx smaller than a binary profile\n",
+				length, output.length(), (double)binaryBytes / output.length());
+		if(output.length() * 4 > binaryBytes) {
+			throw new AssertionError("Compressed profile is only " + (double)binaryBytes / output.length() + "x smaller");
+		}
+		
+		// Values should decode to the nearest double of their rounded decimal
+		WaypointFile waypointFile = WaypointFile.read(input);
+		CompressedProfileReader reader = CompressedProfileReader.map(output);
+		if(reader.getLength() != length) {
+			throw new AssertionError("Reader has " + reader.getLength() + " points instead of " + length);
+		}
+		
+		// and the parameters should be saved with the profile
+		ProfileFile parameters = reader.getParameters();
+		if(parameters.dt != waypointFile.dt || parameters.v_max != waypointFile.v_max
+				|| parameters.a_max != waypointFile.a_max || parameters.j_max != waypointFile.j_max
+				|| parameters.w_width != waypointFile.w_width
+				|| parameters.i_sample_length != waypointFile.i_sample_length
+				|| parameters.i_sample_count != waypointFile.i_sample_count) {
+			throw new AssertionError("Parameters were not saved with the profile");
+		}
+		for(int i = 0;i < length;i++) {
+			reader.next(timePoint, angularTimePoint);
+			for(int j = 0;j < 3;j++) {
+				check(expected.get(j, i), 10000, timePoint[j], i, j);
+				check(expected.get(j+3, i), 10000, angularTimePoint[j], i, j+3);
+			}
+		}
+		if(reader.hasNext()) {
+			throw new AssertionError("Reader has extra points");
+		}
+		
+		// Each column can have its own resolution
+		double[] resolutions = {1E-3, 1E-5, 0.01, 1E-6, 0.25, 0.1};
+		CompressedProfileWriter.write(output, new ProfileFile(waypointFile, expected), resolutions);
+		long start = System.nanoTime();
+		OffHeapProfile decoded = CompressedProfileReader.map(output).decode();
+		long decodeTime = System.nanoTime() - start;
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				if(!(Math.abs(decoded.get(j, i) - expected.get(j, i)) <= resolutions[j] / 2 * (1 + 1E-9))) {
+					throw new AssertionError("Column " + j + ", point " + i + " is " + decoded.get(j, i)
+							+ " instead of " + expected.get(j, i));
+				}
+			}
+		}
+		System.out.format("Decoded %d points in %.2f ms\n", length, decodeTime / 1E6);
+		
+		// Damaged files should be rejected
+		try(FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE)) {
+			channel.truncate(output.length() - 1);
+		}
+		try {
+			CompressedProfileReader.map(output).decode();
+			throw new AssertionError("Truncated profile was decoded");
+		}
+		catch (IOException ex) {
+			System.out.println(ex.getMessage());
+		}
+		try(FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {'C'}), 0);
+		}
+		try {
+			CompressedProfileReader.map(output);
+			throw new AssertionError("Damaged profile was mapped");
+		}
+		catch (IOException ex) {
+			System.out.println(ex.getMessage());
+		}
+		
+		// Values that cannot be rounded to their resolution should be rejected instead of saved as something else,
+		// leaving the last saved profile and no temporary files behind
+		generator.generate(input, output);
+		byte[] saved = Files.readAllBytes(output.toPath());
+		double[] invalid = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1E15, -1E15};
+		for(double value : invalid) {
+			try(CompressedProfileWriter writer = new CompressedProfileWriter(output,
+					new ProfileFile(waypointFile, null))) {
+				timePoint[1] = 0;
+				for(int i = 0;i < 100000;i++) {
+					writer.write(timePoint, angularTimePoint);
+				}
+				timePoint[1] = value;
+				writer.write(timePoint, angularTimePoint);
+				writer.finish();
+				throw new AssertionError(value + " was saved");
+			}
+			catch (IllegalArgumentException ex) {
+				System.out.println(ex.getMessage());
+			}
+		}
+		if(!Arrays.equals(Files.readAllBytes(output.toPath()), saved)) {
+			throw new AssertionError("Failed profile replaced the saved profile");
+		}
+		File[] temporary = output.getAbsoluteFile().getParentFile()
+				.listFiles((directory, name) -> name.startsWith(output.getName()) && name.endsWith(".tmp"));
+		if(temporary.length != 0) {
+			throw new AssertionError("Failed profile left " + temporary[0] + " behind");
+		}
+	}
+	
+	private static void same(double expected, double actual, int i, int j) {
+		if(Double.doubleToLongBits(actual) != Double.doubleToLongBits(expected)) {
+			throw new AssertionError("Column " + j + ", point " + i + " is " + actual + " instead of " + expected);
+		}
+	}
+	
+	private static void check(double value, double scale, double actual, int i, int j) {
+		double rounded = Math.round(value * scale) / scale;
+		if(Double.doubleToLongBits(actual) != Double.doubleToLongBits(rounded)) {
+			throw new AssertionError("Column " + j + ", point " + i + " is " + actual + " instead of " + rounded);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.CsvFormatException;
+import lib.frc1747.motion_profile.batch.CsvParser;
+import lib.frc1747.motion_profile.batch.ProfileCsvWriter;
+import lib.frc1747.motion_profile.batch.WaypointFile;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class CsvParserTest {
+	public static void main(String[] args) throws IOException {
+		// Windows line endings, empty lines, a header, and waypoints with and without limits
+		File input = File.createTempFile("waypoints", ".csv");
+		input.deleteOnExit();
+		try(PrintWriter writer = new PrintWriter(input)) {
+			writer.print("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050\r\n");
+			writer.print("-, X, Y, Velocity Angle, Velocity Magnitude, Acceleration Angle, Acceleration Magnitude\r\n");
+			writer.print("\r\n");
+			writer.print("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000, 4.0000, 8.0000, 3.0000, 6.0000\r\n");
+			writer.print("4.0000,6.0000 ,1.5708,  5.0000, -0.0000, 0.0000\n\n");
+			writer.print("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 1E1");
+		}
+		WaypointFile waypointFile = WaypointFile.read(input);
+		if(!waypointFile.hasParameters || waypointFile.v_max != 12 || waypointFile.r_width != 2.6
+				|| waypointFile.r_length != 3.1 || waypointFile.i_sample_count != 100
+				|| waypointFile.i_sample_length != 0.005) {
+			throw new AssertionError("Parameters were not read");
+		}
+		double[][] expected = {
+				{0, 0, 0, 5, 0, 0, 4, 8, 3, 6},
+				{4, 6, 1.5708, 5, -0.0, 0, 1E6, 1E6, 1E6, 1E6},
+				{0, 12, 3.1416, 5, 0, 10, 1E6, 1E6, 1E6, 1E6}};
+		if(waypointFile.waypoints.size() != expected.length) {
+			throw new AssertionError("Read " + waypointFile.waypoints.size() + " waypoints instead of " + expected.length);
+		}
+		for(int i = 0;i < expected.length;i++) {
+			Waypoint waypoint = waypointFile.waypoints.get(i);
+			double[] actual = {waypoint.x, waypoint.y, waypoint.v_t, waypoint.v_m, waypoint.a_t, waypoint.a_m,
+					waypoint.m_sv, waypoint.m_sa, waypoint.m_av, waypoint.m_aa};
+			for(int j = 0;j < actual.length;j++) {
+				if(Double.doubleToLongBits(actual[j]) != Double.doubleToLongBits(expected[i][j])) {
+					throw new AssertionError("Waypoint " + i + ", value " + j + " is " + actual[j]);
+				}
+			}
+		}
+		
+		// Errors should say where the value is
+		expectError("1.0, 2.0\n\n3.0, 4.O\n", 3, 2);
+		expectError("1.0, 2.0\n3.0\n", 2, 2);
+		expectError("1.0,, 2.0\n", 1, 2);
+		
+		// A profile should read back as the rounded values that were saved
+		Random random = new Random(1747);
+		int length = 5000;
+		OffHeapProfile profile = OffHeapProfile.allocate(length);
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				profile.set(j, i, random.nextGaussian() * Math.pow(10, random.nextInt(8) - 3));
+			}
+		}
+		File output = File.createTempFile("profile", ".csv");
+		output.deleteOnExit();
+		new ProfileCsvWriter().write(output, profile);
+		OffHeapProfile read = BatchGenerator.readProfile(output);
+		if(read.getLength() != length) {
+			throw new AssertionError("Read " + read.getLength() + " points instead of " + length);
+		}
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				double rounded = Double.parseDouble(String.format("%.4f", profile.get(j, i)));
+				if(Double.doubleToLongBits(read.get(j, i)) != Double.doubleToLongBits(rounded)) {
+					throw new AssertionError("Column " + j + ", point " + i + " is " + read.get(j, i) + " instead of " + rounded);
+				}
+			}
+		}
+		
+		// Reading a smaller file after a larger one should not see the rest of the larger one,
+		// and the file should be replaceable as soon as it is read
+		WaypointFile again = WaypointFile.read(input);
+		if(again.waypoints.size() != expected.length || again.waypoints.get(2).a_m != 10) {
+			throw new AssertionError("Reading after a larger file read " + again.waypoints.size() + " waypoints");
+		}
+		try(PrintWriter writer = new PrintWriter(input)) {
+			writer.print("1.0000, 2.0000, 0.0000, 5.0000, 0.0000, 0.0000\n");
+		}
+		again = WaypointFile.read(input);
+		if(again.waypoints.size() != 1 || again.waypoints.get(0).y != 2) {
+			throw new AssertionError("Replaced file was not read");
+		}
+		if(again.hasParameters) {
+			throw new AssertionError("File without parameters has parameters");
+		}
+		
+		// Numbers should parse exactly the same as Double.parseDouble
+		StringBuilder text = new StringBuilder();
+		String[] values = new String[100000];
+		for(int i = 0;i < values.length;i++) {
+			switch(random.nextInt(4)) {
+			case 0:
+				values[i] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+				break;
+			case 1:
+				values[i] = (random.nextBoolean() ? "-" : "") + random.nextInt(100000) + "." + random.nextInt(100000);
+				break;
+			case 2:
+				values[i] = Long.toString(random.nextLong()) + "." + Long.toString(random.nextLong() & Long.MAX_VALUE);
+				break;
+			default:
+				values[i] = String.format("%.4f", random.nextGaussian() * 100);
+				break;
+			}
+			text.append(values[i]).append(i % 10 == 9 ? "\n" : ", ");
+		}
+		CsvParser parser = new CsvParser(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1)), "values");
+		for(int i = 0;i < values.length;i++) {
+			if(i % 10 == 0 && !parser.nextRow()) {
+				throw new AssertionError("Row " + (i / 10 + 1) + " is missing");
+			}
+			double value = parser.nextDouble();
+			if(Double.doubleToLongBits(value) != Double.doubleToLongBits(Double.parseDouble(values[i]))) {
+				throw new AssertionError(values[i] + " was parsed as " + value);
+			}
+		}
+		if(parser.nextRow()) {
+			throw new AssertionError("Parser read past the end");
+		}
+	}
+	
+	private static void expectError(String text, int row, int column) throws IOException {
+		CsvParser parser = new CsvParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)), "test");
+		try {
+			while(parser.nextRow()) {
+				parser.nextDouble();
+				parser.nextDouble();
+			}
+		}
+		catch (CsvFormatException ex) {
+			if(ex.getRow() != row || ex.getColumn() != column) {
+				throw new AssertionError("Error at row " + ex.getRow() + ", column " + ex.getColumn()
+						+ " instead of row " + row + ", column " + column);
+			}
+			System.out.println(ex.getMessage());
+			return;
+		}
+		throw new AssertionError("No error for " + text);
+	}
+}
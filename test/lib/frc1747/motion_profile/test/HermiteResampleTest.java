@@ -0,0 +1,141 @@
+package lib.frc1747.motion_profile.test;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.ProfileWorkspace;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryCursor;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+import lib.frc1747.motion_profile.gui._1d.BoxcarFilter;
+
+public class HermiteResampleTest {
+	public static void main(String[] args) {
+		// An S curve
+		Waypoint[] waypoints = new Waypoint[4];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = i * 4;
+			waypoints[i].y = (i % 2) * 4;
+			waypoints[i].v_m = 8;
+		}
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		ProfileWorkspace workspace = new ProfileWorkspace();
+		SplineGenerator.flattenProfile(splines, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH,
+				workspace.getProfileSegments());
+		workspace.generate(null, Parameters.V_MAX, Parameters.A_MAX, Parameters.J_MAX, Parameters.W_WIDTH,
+				Parameters.DT, true, true);
+		Trajectory profilePoints = workspace.getProfilePoints();
+		double[] profileTimes = workspace.getProfileTimes();
+		double[] angularProfilePoints = ProfileGenerator.secondaryProfileIntegrate(workspace.getProfileSegments());
+		
+		// Resampling every waypoint is the reference
+		Trajectory[] reference = resample(profilePoints, angularProfilePoints, profileTimes, 1, false);
+		
+		// Keeping only some of the waypoints should be closer to the reference with Hermite interpolation
+		int step = 15;
+		Trajectory[] linear = resample(profilePoints, angularProfilePoints, profileTimes, step, false);
+		Trajectory[] hermite = resample(profilePoints, angularProfilePoints, profileTimes, step, true);
+		double[] linearError = error(reference, linear);
+		double[] hermiteError = error(reference, hermite);
+		
+		System.out.format("Linear: v %g, a %g, theta %g, omega %g\n",
+				linearError[0], linearError[1], linearError[2], linearError[3]);
+		System.out.format("Hermite: v %g, a %g, theta %g, omega %g\n",
+				hermiteError[0], hermiteError[1], hermiteError[2], hermiteError[3]);
+		if(hermiteError[2] * 5 > linearError[2] || hermiteError[3] * 5 > linearError[3]) {
+			throw new AssertionError("Hermite interpolation does not follow the angle more closely");
+		}
+		
+		// Smoothing the velocity should never accelerate harder than the limit,
+		// even at the end of a constant acceleration where the slope drops to zero
+		Trajectory trapezoid = new Trajectory(4);
+		double[] trapezoidTimes = {0, 1, 2, 3};
+		trapezoid.v[1] = Parameters.A_MAX;
+		trapezoid.v[2] = Parameters.A_MAX;
+		Trajectory trapezoidPoints = new Trajectory(0);
+		ProfileGenerator.profileFromPoints(trapezoid, trapezoidTimes, Parameters.DT, true, trapezoidPoints);
+		double maxAcceleration = Math.max(maxAcceleration(trapezoidPoints), maxAcceleration(hermite[0]));
+		System.out.format("Max acceleration: %g, limit: %g\n", maxAcceleration, Parameters.A_MAX);
+		if(maxAcceleration > Parameters.A_MAX * (1 + 1E-9)) {
+			throw new AssertionError("Hermite interpolation accelerates harder than the limit");
+		}
+		
+		// Hermite interpolation should also work with the cursor
+		Trajectory timePoints = new Trajectory(0);
+		Trajectory angularTimePoints = new Trajectory(0);
+		ProfileGenerator.profileFromPoints(profilePoints, profileTimes, Parameters.DT, true, timePoints);
+		ProfileGenerator.synchronizedProfileFromProfile(timePoints, profilePoints, angularProfilePoints, profileTimes,
+				Parameters.DT, true, angularTimePoints);
+		int filterLength = (int)Math.ceil(Parameters.A_MAX/Parameters.J_MAX/Parameters.DT);
+		double[] window = new double[filterLength];
+		BoxcarFilter.multiFilterInPlace(timePoints, filterLength, window);
+		BoxcarFilter.multiFilterInPlace(angularTimePoints, filterLength, window);
+		double[][] timeRows = timePoints.toRows();
+		double[][] angularTimeRows = angularTimePoints.toRows();
+		TrajectoryCursor cursor = new TrajectoryCursor(profilePoints, angularProfilePoints, profileTimes,
+				Parameters.DT, filterLength, true);
+		double[] timePoint = new double[3];
+		double[] angularTimePoint = new double[3];
+		double maxCursorError = 0;
+		while(cursor.hasNext()) {
+			int i = cursor.getIndex();
+			cursor.next(timePoint, angularTimePoint);
+			for(int j = 0;j < 3;j++) {
+				maxCursorError = Math.max(maxCursorError, Math.abs(timePoint[j] - timeRows[i][j]));
+				maxCursorError = Math.max(maxCursorError, Math.abs(angularTimePoint[j] - angularTimeRows[i][j]));
+			}
+		}
+		System.out.format("Max cursor error: %g\n", maxCursorError);
+		if(maxCursorError > 1E-9) {
+			throw new AssertionError("The cursor does not match Hermite resampling of the whole profile");
+		}
+	}
+	
+	private static Trajectory[] resample(Trajectory profilePoints, double[] angularProfilePoints,
+			double[] profileTimes, int step, boolean hermite) {
+		// Keep every step-th waypoint and the last one
+		int length = (profilePoints.length - 2) / step + 2;
+		Trajectory points = new Trajectory(length);
+		double[] angles = new double[length];
+		double[] times = new double[length];
+		for(int i = 0;i < length;i++) {
+			int j = Math.min(i * step, profilePoints.length-1);
+			if(i == length-1) {
+				j = profilePoints.length-1;
+			}
+			points.x[i] = profilePoints.x[j];
+			points.v[i] = profilePoints.v[j];
+			points.a[i] = profilePoints.a[j];
+			angles[i] = angularProfilePoints[j];
+			times[i] = profileTimes[j];
+		}
+		
+		Trajectory timePoints = new Trajectory(0);
+		Trajectory angularTimePoints = new Trajectory(0);
+		ProfileGenerator.profileFromPoints(points, times, Parameters.DT, hermite, timePoints);
+		ProfileGenerator.synchronizedProfileFromProfile(timePoints, points, angles, times, Parameters.DT, hermite,
+				angularTimePoints);
+		return new Trajectory[] {timePoints, angularTimePoints};
+	}
+	
+	private static double maxAcceleration(Trajectory timePoints) {
+		double maxAcceleration = 0;
+		for(int i = 0;i < timePoints.length;i++) {
+			maxAcceleration = Math.max(maxAcceleration, Math.abs(timePoints.a[i]));
+		}
+		return maxAcceleration;
+	}
+	
+	private static double[] error(Trajectory[] expected, Trajectory[] actual) {
+		double[] error = new double[4];
+		for(int i = 0;i < expected[0].length;i++) {
+			error[0] = Math.max(error[0], Math.abs(expected[0].v[i] - actual[0].v[i]));
+			error[1] = Math.max(error[1], Math.abs(expected[0].a[i] - actual[0].a[i]));
+			error[2] = Math.max(error[2], Math.abs(expected[1].x[i] - actual[1].x[i]));
+			error[3] = Math.max(error[3], Math.abs(expected[1].v[i] - actual[1].v[i]));
+		}
+		return error;
+	}
+}
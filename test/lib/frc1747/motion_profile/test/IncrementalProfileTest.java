@@ -0,0 +1,90 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Random;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.generator._1d.IncrementalProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.SegmentedProfileGenerator;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class IncrementalProfileTest {
+	public static void main(String[] args) {
+		Random random = new Random(1747);
+		Waypoint[] waypoints = new Waypoint[20];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = i * 3;
+			waypoints[i].y = random.nextDouble() * 6;
+			waypoints[i].v_t = -Math.PI/2;
+			waypoints[i].v_m = 4;
+			waypoints[i].a_t = 0;
+			waypoints[i].a_m = 0;
+			waypoints[i].m_sv = 1E6;
+			waypoints[i].m_sa = 1E6;
+			waypoints[i].reverse = i >= 15;
+		}
+		
+		IncrementalProfileGenerator incremental = new IncrementalProfileGenerator();
+		SegmentedProfileGenerator segmented = new SegmentedProfileGenerator();
+		double maxError = 0;
+		long incrementalTime = 0;
+		long segmentedTime = 0;
+		
+		for(int n = 0;n < 200;n++) {
+			// Drag a waypoint, or occasionally change its limits
+			Waypoint waypoint = waypoints[random.nextInt(waypoints.length)];
+			if(n % 10 == 9) {
+				waypoint.m_sv = waypoint.m_sv < 1E3 ? 1E6 : random.nextDouble() * 4;
+			}
+			else {
+				waypoint.x += (random.nextDouble() - 0.5) * 0.2;
+				waypoint.y += (random.nextDouble() - 0.5) * 0.2;
+			}
+			
+			QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+			double[][] profileSegments = SplineGenerator.flattenProfile(splines,
+					Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+			double[][] waypointLimits = new double[waypoints.length][5];
+			for(int i = 0;i < waypointLimits.length;i++) {
+				waypointLimits[i][1] = waypoints[i].m_sv;
+				waypointLimits[i][2] = waypoints[i].m_sa;
+			}
+			for(int i = 1, j = 0;i < waypointLimits.length;i++) {
+				double length = 0;
+				while(j < profileSegments.length && length < splines[i-1].uniformTimeArcLength(Parameters.I_SAMPLE_COUNT) - 1E-6) {
+					length += Math.abs(profileSegments[j][0]);
+					waypointLimits[i][0] += profileSegments[j][0];
+					j++;
+				}
+				waypointLimits[i][0] += waypointLimits[i-1][0];
+			}
+			
+			long start = System.nanoTime();
+			double[][] profilePoints = incremental.update(profileSegments, waypointLimits,
+					Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH, true, true);
+			double[] profileTimes = incremental.getProfileTimes();
+			incrementalTime += System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			double[][] referencePoints = segmented.limitedPointsFromSegments(profileSegments, waypointLimits,
+					Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH, true, true);
+			double[] referenceTimes = segmented.timesFromPoints(referencePoints);
+			segmentedTime += System.nanoTime() - start;
+			
+			for(int i = 0;i < referencePoints.length;i++) {
+				for(int j = 0;j < 3;j++) {
+					maxError = Math.max(maxError, Math.abs(referencePoints[i][j] - profilePoints[i][j]));
+				}
+				maxError = Math.max(maxError, Math.abs(referenceTimes[i] - profileTimes[i]));
+			}
+		}
+		
+		System.out.format("Max error: %g\n", maxError);
+		System.out.format("Incremental: %.2f ms, Full: %.2f ms\n", incrementalTime / 1E6, segmentedTime / 1E6);
+		if(maxError > 1E-6) {
+			throw new AssertionError("Incremental profile does not match the full profile");
+		}
+	}
+}
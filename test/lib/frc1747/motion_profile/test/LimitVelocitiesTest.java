@@ -0,0 +1,62 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Random;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.SegmentedProfileGenerator;
+
+public class LimitVelocitiesTest {
+	public static void main(String[] args) {
+		Random random = new Random(1747);
+		double maxError = 0;
+		long referenceTime = 0;
+		long sweepTime = 0;
+		
+		for(int n = 0;n < 50;n++) {
+			// Build a random profile with cusps and per point limits
+			double[][] profileSegments = new double[200 + random.nextInt(4000)][2];
+			double direction = 1;
+			for(int i = 0;i < profileSegments.length;i++) {
+				if(random.nextInt(1000) == 0) direction = -direction;
+				profileSegments[i][0] = direction * Parameters.I_SAMPLE_LENGTH;
+				profileSegments[i][1] = (random.nextDouble() - 0.5) * 0.01;
+			}
+			double[][] reference = ProfileGenerator.primaryProfileIntegrate(profileSegments, 0);
+			ProfileGenerator.skidSteerLimitVelocities(reference, profileSegments,
+					Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH);
+			// The robot must stop to change directions, the same as in generation
+			for(int cusp : SegmentedProfileGenerator.findCusps(profileSegments)) {
+				reference[cusp][1] = 0;
+				reference[cusp][2] = 0;
+			}
+			reference[0][1] = 0;
+			reference[0][2] = 0;
+			reference[reference.length-1][1] = 0;
+			reference[reference.length-1][2] = 0;
+			reference[random.nextInt(reference.length)][1] = 0;
+			
+			double[][] sweep = new double[reference.length][];
+			for(int i = 0;i < reference.length;i++) {
+				sweep[i] = reference[i].clone();
+			}
+			
+			long start = System.nanoTime();
+			ProfileGenerator.limitVelocities(reference);
+			referenceTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			ProfileGenerator.sweepLimitVelocities(sweep);
+			sweepTime += System.nanoTime() - start;
+			
+			for(int i = 0;i < reference.length;i++) {
+				maxError = Math.max(maxError, Math.abs(reference[i][1] - sweep[i][1]));
+			}
+		}
+		
+		System.out.format("Max error: %g\n", maxError);
+		System.out.format("Reference: %.2f ms, Sweep: %.2f ms\n", referenceTime / 1E6, sweepTime / 1E6);
+		if(!(maxError <= 1E-9)) {
+			throw new AssertionError("Sweep limiter does not match the reference limiter");
+		}
+	}
+}
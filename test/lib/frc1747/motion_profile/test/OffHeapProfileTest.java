@@ -0,0 +1,123 @@
+package lib.frc1747.motion_profile.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.Trajectory;
+
+public class OffHeapProfileTest {
+	public static void main(String[] args) {
+		// Random translation and rotation profiles, as rows and as columns
+		Random random = new Random(1747);
+		int length = 1000;
+		double[][] timeRows = new double[length][3];
+		double[][] angularTimeRows = new double[length][3];
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < 3;j++) {
+				timeRows[i][j] = random.nextGaussian();
+				angularTimeRows[i][j] = random.nextGaussian();
+			}
+		}
+		Trajectory timePoints = Trajectory.fromRows(timeRows);
+		Trajectory angularTimePoints = Trajectory.fromRows(angularTimeRows);
+		
+		// Both should give the same scaled profile, in the order of the columns
+		OffHeapProfile rows = OffHeapProfile.fromProfiles(timeRows, angularTimeRows, -1, 2);
+		OffHeapProfile columns = OffHeapProfile.fromProfiles(timePoints, angularTimePoints, -1, 2);
+		if(rows.getLength() != length || columns.getLength() != length) {
+			throw new AssertionError("Profiles have " + rows.getLength() + " and " + columns.getLength()
+					+ " points instead of " + length);
+		}
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < 3;j++) {
+				same(-timeRows[i][j], rows.get(OffHeapProfile.TRANSLATION_POSITION + j, i), i, j);
+				same(2 * angularTimeRows[i][j], rows.get(OffHeapProfile.ROTATION_POSITION + j, i), i, j+3);
+			}
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				same(rows.get(j, i), columns.get(j, i), i, j);
+			}
+		}
+		
+		// Values should read back exactly as they were set, without touching the other columns
+		OffHeapProfile profile = OffHeapProfile.allocate(length);
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				profile.set(j, i, rows.get(j, i));
+			}
+		}
+		profile.set(OffHeapProfile.ROTATION_VELOCITY, 500, Double.NaN);
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				if(j == OffHeapProfile.ROTATION_VELOCITY && i == 500) {
+					same(Double.NaN, profile.get(j, i), i, j);
+				}
+				else {
+					same(rows.get(j, i), profile.get(j, i), i, j);
+				}
+			}
+		}
+		
+		// Points and columns outside of the profile should be rejected instead of reading another column
+		int[][] outside = {{-1, 0}, {OffHeapProfile.COLUMNS, 0}, {0, -1}, {0, length},
+				{OffHeapProfile.ROTATION_ACCELERATION, length}, {1, Integer.MAX_VALUE}};
+		for(int[] point : outside) {
+			try {
+				profile.get(point[0], point[1]);
+				throw new AssertionError("Column " + point[0] + ", point " + point[1] + " was read");
+			}
+			catch (IndexOutOfBoundsException ex) {}
+			try {
+				profile.set(point[0], point[1], 0);
+				throw new AssertionError("Column " + point[0] + ", point " + point[1] + " was written");
+			}
+			catch (IndexOutOfBoundsException ex) {}
+		}
+		
+		// Lengths whose offsets would not fit in an int should be rejected
+		int[] lengths = {-1, OffHeapProfile.MAX_LENGTH + 1, Integer.MAX_VALUE};
+		for(int invalid : lengths) {
+			try {
+				OffHeapProfile.allocate(invalid);
+				throw new AssertionError(invalid + " points were allocated");
+			}
+			catch (IllegalArgumentException ex) {}
+		}
+		try {
+			new OffHeapProfile(ByteBuffer.allocate(8), -1);
+			throw new AssertionError("A negative length was accepted");
+		}
+		catch (IllegalArgumentException ex) {}
+		
+		// The buffer should be a little endian view of the columns that cannot change the profile
+		ByteBuffer buffer = profile.getBuffer();
+		if(buffer.order() != ByteOrder.LITTLE_ENDIAN || buffer.remaining() != length * OffHeapProfile.COLUMNS * 8) {
+			throw new AssertionError("Buffer is not the little endian columns");
+		}
+		profile.set(OffHeapProfile.TRANSLATION_VELOCITY, 3, 1.5);
+		same(1.5, buffer.getDouble((OffHeapProfile.TRANSLATION_VELOCITY * length + 3) * 8),
+				3, OffHeapProfile.TRANSLATION_VELOCITY);
+		try {
+			buffer.putDouble(0, 0);
+			throw new AssertionError("Buffer can change the profile");
+		}
+		catch (ReadOnlyBufferException ex) {}
+		
+		// A profile backed by the buffer should read the same values
+		OffHeapProfile view = new OffHeapProfile(buffer, length);
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				same(profile.get(j, i), view.get(j, i), i, j);
+			}
+		}
+		System.out.println("Off heap profile round trips");
+	}
+	
+	private static void same(double expected, double actual, int i, int j) {
+		if(Double.doubleToLongBits(actual) != Double.doubleToLongBits(expected)) {
+			throw new AssertionError("Column " + j + ", point " + i + " is " + actual + " instead of " + expected);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.ProfileBundle;
+import lib.frc1747.motion_profile.batch.ProfileFile;
+
+public class ProfileBundleTest {
+	public static void main(String[] args) throws IOException {
+		File directory = Files.createTempDirectory("waypoints").toFile();
+		File bundleFile = new File(directory, "routines" + ProfileBundle.EXTENSION);
+		String[] routines = {"left", "center", "right"};
+		for(int i = 0;i < routines.length;i++) {
+			try(PrintWriter writer = new PrintWriter(new File(directory, routines[i] + ".csv"))) {
+				writer.println("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050");
+				writer.println("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000");
+				writer.format("%d.0000, 6.0000, 1.5708, 5.0000, 0.0000, 0.0000\n", i * 2 - 2);
+				writer.println("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 0.0000");
+			}
+		}
+		
+		// Bundle the directory the same way as from the command line
+		BatchGenerator.main(new String[] {"-bundle", bundleFile.toString(), directory.toString()});
+		ProfileBundle bundle = ProfileBundle.map(bundleFile);
+		List<String> names = bundle.getNames();
+		if(bundle.size() != routines.length || !names.equals(Arrays.asList("center", "left", "right"))) {
+			throw new AssertionError("Bundle has " + names + " instead of " + Arrays.toString(routines));
+		}
+		BatchGenerator generator = new BatchGenerator();
+		for(String routine : routines) {
+			ProfileFile expected = generator.generateProfile(new File(directory, routine + ".csv"));
+			compare(expected, bundle.get(routine), routine);
+		}
+		
+		// Names with the same hash, names that are not ASCII, and many more names than the first table
+		if("Aa".hashCode() != "BB".hashCode()) {
+			throw new AssertionError("Aa and BB should have the same hash");
+		}
+		ProfileFile profileFile = bundle.get("left");
+		Map<String, ProfileFile> profiles = new LinkedHashMap<>();
+		profiles.put("Aa", bundle.get("center"));
+		profiles.put("BB", bundle.get("right"));
+		profiles.put("\u00e9toile", profileFile);
+		profiles.put("", profileFile);
+		for(int i = 0;i < 1000;i++) {
+			profiles.put("routine " + i, profileFile);
+		}
+		ProfileBundle.write(bundleFile, profiles);
+		bundle = ProfileBundle.map(bundleFile);
+		if(bundle.size() != profiles.size() || !bundle.getNames().equals(Arrays.asList(profiles.keySet().toArray()))) {
+			throw new AssertionError("Bundle has the wrong names");
+		}
+		for(Map.Entry<String, ProfileFile> entry : profiles.entrySet()) {
+			compare(entry.getValue(), bundle.get(entry.getKey()), entry.getKey());
+		}
+		if(bundle.get("routine 1000") != null || bundle.contains("Ab") || !bundle.contains("BB")) {
+			throw new AssertionError("Bundle found a profile that is not in it");
+		}
+		
+		// Lookups should not depend on the size of the bundle
+		long start = System.nanoTime();
+		int points = 0;
+		for(int i = 0;i < 100000;i++) {
+			points += bundle.get("routine " + (i % 1000)).profile.getLength();
+		}
+		System.out.format("%d lookups (%d points) in %.1f ms from %d bytes\n",
+				100000, points, (System.nanoTime() - start) / 1E6, bundleFile.length());
+		
+		for(File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+	
+	private static void compare(ProfileFile expected, ProfileFile actual, String name) {
+		if(actual == null) {
+			throw new AssertionError(name + " is missing");
+		}
+		if(actual.v_max != expected.v_max || actual.dt != expected.dt || actual.i_sample_count != expected.i_sample_count) {
+			throw new AssertionError(name + " has the wrong parameters");
+		}
+		OffHeapProfile expectedProfile = expected.profile;
+		OffHeapProfile actualProfile = actual.profile;
+		if(actualProfile.getLength() != expectedProfile.getLength()) {
+			throw new AssertionError(name + " has " + actualProfile.getLength() + " points instead of "
+					+ expectedProfile.getLength());
+		}
+		for(int i = 0;i < expectedProfile.getLength();i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				if(Double.doubleToLongBits(expectedProfile.get(j, i)) != Double.doubleToLongBits(actualProfile.get(j, i))) {
+					throw new AssertionError(name + ", column " + j + ", point " + i + " changed");
+				}
+			}
+		}
+	}
+}
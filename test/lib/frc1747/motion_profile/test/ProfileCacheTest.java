@@ -0,0 +1,166 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.ProfileCache;
+import lib.frc1747.motion_profile.batch.WaypointFile;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class ProfileCacheTest {
+	public static void main(String[] args) throws IOException {
+		File directory = Files.createTempDirectory("cache").toFile();
+		File input = new File(directory, "waypoints.csv");
+		try(PrintWriter writer = new PrintWriter(input)) {
+			writer.println("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050");
+			writer.println("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000");
+			writer.println("4.0000, 6.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+			writer.println("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 0.0000");
+		}
+		
+		// Partly written profiles from a stopped run are cleaned up,
+		// but ones another generator sharing the cache is still writing are not
+		File cacheDirectory = new File(directory, "profiles");
+		cacheDirectory.mkdir();
+		File stray = new File(cacheDirectory, "stopped.tmp");
+		stray.createNewFile();
+		stray.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000);
+		File writing = new File(cacheDirectory, "writing.tmp");
+		writing.createNewFile();
+		ProfileCache cache = new ProfileCache(cacheDirectory, 1 << 30);
+		if(stray.exists()) {
+			throw new AssertionError("Stray temporary file was not deleted");
+		}
+		if(!writing.exists()) {
+			throw new AssertionError("Temporary file being written was deleted");
+		}
+		writing.delete();
+		
+		// A hit should return exactly what was generated
+		BatchGenerator generator = new BatchGenerator(cache);
+		OffHeapProfile expected = new BatchGenerator().generateProfile(input).profile;
+		OffHeapProfile miss = generator.generateProfile(input).profile;
+		OffHeapProfile hit = generator.generateProfile(input).profile;
+		compare(expected, miss, "Miss");
+		compare(expected, hit, "Hit");
+		check(cache, 1, 1);
+		long profileBytes = cache.getSize();
+		if(profileBytes != (long)expected.getLength() * OffHeapProfile.COLUMNS * 8) {
+			throw new AssertionError("Cache is " + profileBytes + " bytes for one profile");
+		}
+		
+		// Every value that changes generation should change the key
+		WaypointFile waypointFile = WaypointFile.read(input);
+		String key = ProfileCache.key(waypointFile);
+		if(!ProfileCache.key(WaypointFile.read(input)).equals(key)) {
+			throw new AssertionError("Key changed between reads of the same file");
+		}
+		for(int i = 0;i < 18;i++) {
+			WaypointFile changed = WaypointFile.read(input);
+			Waypoint waypoint = changed.waypoints.get(1);
+			switch(i) {
+			case 0: changed.v_max += 1; break;
+			case 1: changed.a_max += 1; break;
+			case 2: changed.j_max += 1; break;
+			case 3: changed.w_width += 0.1; break;
+			case 4: changed.dt += 0.001; break;
+			case 5: changed.i_sample_count += 1; break;
+			case 6: changed.i_sample_length += 0.001; break;
+			case 7: waypoint.x += 0.1; break;
+			case 8: waypoint.y += 0.1; break;
+			case 9: waypoint.v_t += 0.1; break;
+			case 10: waypoint.v_m += 0.1; break;
+			case 11: waypoint.a_t += 0.1; break;
+			case 12: waypoint.a_m += 0.1; break;
+			case 13: waypoint.m_sv += 0.1; break;
+			case 14: waypoint.m_sa += 0.1; break;
+			case 15: waypoint.m_av += 0.1; break;
+			case 16: waypoint.m_aa += 0.1; break;
+			case 17: waypoint.reverse = !waypoint.reverse; break;
+			}
+			if(ProfileCache.key(changed).equals(key)) {
+				throw new AssertionError("Change " + i + " did not change the key");
+			}
+		}
+		
+		// Room for two profiles, so adding a third evicts the least recently used one
+		File smallDirectory = new File(directory, "small");
+		ProfileCache small = new ProfileCache(smallDirectory, profileBytes * 5 / 2);
+		small.put("first", expected);
+		small.put("second", expected);
+		compare(expected, small.get("first"), "first");
+		small.put("third", expected);
+		if(small.get("second") != null || new File(smallDirectory, "second.profile").exists()) {
+			throw new AssertionError("second should have been evicted");
+		}
+		compare(expected, small.get("first"), "first");
+		compare(expected, small.get("third"), "third");
+		check(small, 3, 1);
+		if(small.getSize() != profileBytes * 2) {
+			throw new AssertionError("Cache is " + small.getSize() + " bytes for two profiles");
+		}
+		
+		// Reopening keeps the profiles, oldest first in line for eviction
+		small = new ProfileCache(smallDirectory, profileBytes * 5 / 2);
+		if(small.getSize() != profileBytes * 2) {
+			throw new AssertionError("Reopened cache is " + small.getSize() + " bytes");
+		}
+		
+		// A profile that cannot be saved leaves nothing behind, and is still returned when generating
+		File blocked = new File(cacheDirectory, key + ".profile");
+		blocked.delete();
+		new File(blocked, "blocked").mkdirs();
+		cache = new ProfileCache(cacheDirectory, 1 << 30);
+		try {
+			cache.put(key, expected);
+			throw new AssertionError("Profile was saved over a directory");
+		}
+		catch (IOException ex) {
+			System.out.println(ex.getMessage());
+		}
+		if(cacheDirectory.listFiles((parent, name) -> name.endsWith(".tmp")).length != 0) {
+			throw new AssertionError("Failed save left a temporary file");
+		}
+		compare(expected, new BatchGenerator(cache).generateProfile(input).profile, "Uncachable");
+		
+		delete(directory);
+	}
+	
+	private static void check(ProfileCache cache, long hits, long misses) {
+		if(cache.getHits() != hits || cache.getMisses() != misses) {
+			throw new AssertionError("Cache has " + cache.getHits() + " hits and " + cache.getMisses()
+					+ " misses instead of " + hits + " and " + misses);
+		}
+	}
+	
+	private static void compare(OffHeapProfile expected, OffHeapProfile actual, String name) {
+		if(actual == null) {
+			throw new AssertionError(name + " is missing");
+		}
+		if(actual.getLength() != expected.getLength()) {
+			throw new AssertionError(name + " has " + actual.getLength() + " points instead of "
+					+ expected.getLength());
+		}
+		for(int i = 0;i < expected.getLength();i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				if(Double.doubleToLongBits(expected.get(j, i)) != Double.doubleToLongBits(actual.get(j, i))) {
+					throw new AssertionError(name + ", column " + j + ", point " + i + " changed");
+				}
+			}
+		}
+	}
+	
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if(files != null) {
+			for(File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
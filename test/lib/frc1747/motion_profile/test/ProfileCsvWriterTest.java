@@ -0,0 +1,132 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.ProfileCsvWriter;
+
+public class ProfileCsvWriterTest {
+	public static void main(String[] args) throws IOException {
+		// Values of every size, values exactly halfway between two outputs, and special values
+		Random random = new Random(1747);
+		int length = 20000;
+		double[][] timePoints = new double[length][3];
+		double[][] angularTimePoints = new double[length][3];
+		double[] special = {0, -0.0, 0.00005, -0.00005, 1.00005, 0.00004999, 1E7, -1E7, 9999999.99995, 1E20,
+				Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < 3;j++) {
+				timePoints[i][j] = value(random, special);
+				angularTimePoints[i][j] = value(random, special);
+			}
+		}
+		
+		File expected = File.createTempFile("expected", ".csv");
+		File actual = File.createTempFile("actual", ".csv");
+		expected.deleteOnExit();
+		actual.deleteOnExit();
+		
+		// The way the profile generator has always saved profiles
+		long start = System.nanoTime();
+		PrintWriter writer = new PrintWriter(expected);
+		writer.format("%d, %d\n", 2, length);
+		for(int i = 0;i < length;i++) {
+			writer.format("%.4f, %.4f, %.4f, %.4f, %.4f, %.4f\n",
+					-1 * timePoints[i][0],
+					-1 * timePoints[i][1],
+					-1 * timePoints[i][2],
+					angularTimePoints[i][0],
+					angularTimePoints[i][1],
+					angularTimePoints[i][2]);
+		}
+		writer.close();
+		long formatTime = System.nanoTime() - start;
+		
+		ProfileCsvWriter csvWriter = new ProfileCsvWriter();
+		start = System.nanoTime();
+		csvWriter.write(actual, timePoints, angularTimePoints, -1, 1);
+		long writerTime = System.nanoTime() - start;
+		compare(expected, actual);
+		
+		// The same writer should be reusable for the other layout
+		csvWriter.write(actual, OffHeapProfile.fromProfiles(timePoints, angularTimePoints, -1, 1));
+		compare(expected, actual);
+		
+		// Most of these values take the slow path, so this is not how fast typical profiles are saved
+		System.out.format("Every kind of value: String.format: %.1f ms, ProfileCsvWriter: %.1f ms\n",
+				formatTime / 1E6, writerTime / 1E6);
+		
+		// Time a generated profile instead, taking the fastest of several runs of each
+		File input = File.createTempFile("waypoints", ".csv");
+		input.deleteOnExit();
+		try(PrintWriter waypointWriter = new PrintWriter(input)) {
+			waypointWriter.println("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050");
+			waypointWriter.println("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000");
+			waypointWriter.println("4.0000, 6.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+			waypointWriter.println("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 0.0000");
+			waypointWriter.println("-6.0000, 18.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+		}
+		OffHeapProfile profile = new BatchGenerator().generateProfile(input).profile;
+		formatTime = Long.MAX_VALUE;
+		writerTime = Long.MAX_VALUE;
+		for(int run = 0;run < 20;run++) {
+			start = System.nanoTime();
+			writer = new PrintWriter(expected);
+			writer.format("%d, %d\n", 2, profile.getLength());
+			for(int i = 0;i < profile.getLength();i++) {
+				writer.format("%.4f, %.4f, %.4f, %.4f, %.4f, %.4f\n",
+						profile.get(0, i),
+						profile.get(1, i),
+						profile.get(2, i),
+						profile.get(3, i),
+						profile.get(4, i),
+						profile.get(5, i));
+			}
+			writer.close();
+			formatTime = Math.min(formatTime, System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			csvWriter.write(actual, profile);
+			writerTime = Math.min(writerTime, System.nanoTime() - start);
+		}
+		compare(expected, actual);
+		System.out.format("Generated profile of %d points: String.format: %.2f ms, ProfileCsvWriter: %.2f ms, %.1fx faster\n",
+				profile.getLength(), formatTime / 1E6, writerTime / 1E6, (double)formatTime / writerTime);
+		if(writerTime > formatTime) {
+			throw new AssertionError("ProfileCsvWriter is slower than String.format on a generated profile");
+		}
+	}
+	
+	private static double value(Random random, double[] special) {
+		switch(random.nextInt(4)) {
+		case 0:
+			return special[random.nextInt(special.length)];
+		case 1:
+			// Exactly halfway in decimal, but usually not in binary
+			return (random.nextInt(2000000) - 1000000 + 0.5) / 10000;
+		default:
+			return random.nextGaussian() * Math.pow(10, random.nextInt(16) - 8);
+		}
+	}
+	
+	private static void compare(File expected, File actual) throws IOException {
+		byte[] expectedBytes = Files.readAllBytes(expected.toPath());
+		byte[] actualBytes = Files.readAllBytes(actual.toPath());
+		if(!Arrays.equals(expectedBytes, actualBytes)) {
+			String[] expectedLines = new String(expectedBytes).split("\n");
+			String[] actualLines = new String(actualBytes).split("\n");
+			for(int i = 0;i < Math.min(expectedLines.length, actualLines.length);i++) {
+				if(!expectedLines[i].equals(actualLines[i])) {
+					throw new AssertionError("Line " + i + " is " + actualLines[i] + " instead of " + expectedLines[i]);
+				}
+			}
+			throw new AssertionError("Output has " + actualLines.length + " lines instead of " + expectedLines.length);
+		}
+	}
+}
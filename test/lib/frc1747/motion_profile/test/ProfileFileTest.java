@@ -0,0 +1,83 @@
+package lib.frc1747.motion_profile.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import lib.frc1747.motion_profile.OffHeapProfile;
+import lib.frc1747.motion_profile.batch.BatchGenerator;
+import lib.frc1747.motion_profile.batch.ProfileFile;
+import lib.frc1747.motion_profile.batch.WaypointFile;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+
+public class ProfileFileTest {
+	public static void main(String[] args) throws IOException {
+		File input = File.createTempFile("waypoints", ".csv");
+		File output = File.createTempFile("profile", ProfileFile.EXTENSION);
+		input.deleteOnExit();
+		output.deleteOnExit();
+		try(PrintWriter writer = new PrintWriter(input)) {
+			writer.println("Parameters, 12.0000, 18.0000, 24.0000, 2.2000, 2.6000, 3.1000, 0.0100, 100, 0.0050");
+			writer.println("0.0000, 0.0000, 0.0000, 5.0000, 0.0000, 0.0000");
+			writer.println("4.0000, 6.0000, 1.5708, 5.0000, 0.0000, 0.0000");
+			writer.println("0.0000, 12.0000, 3.1416, 5.0000, 0.0000, 0.0000");
+		}
+		
+		// Save a binary profile, then map it again
+		BatchGenerator generator = new BatchGenerator();
+		int length = generator.generate(input, output);
+		ProfileFile profileFile = ProfileFile.map(output);
+		
+		WaypointFile waypointFile = WaypointFile.read(input);
+		TrajectoryPipeline pipeline = generator.generate(waypointFile);
+		OffHeapProfile expected = OffHeapProfile.fromProfiles(
+				pipeline.getTimePoints(), pipeline.getAngularTimePoints(), 1, 1);
+		OffHeapProfile actual = profileFile.profile;
+		if(actual.getLength() != length || actual.getLength() != expected.getLength()) {
+			throw new AssertionError("Mapped profile has " + actual.getLength() + " points instead of " + length);
+		}
+		// Nothing is rounded, so every value should be exactly the same
+		for(int i = 0;i < length;i++) {
+			for(int j = 0;j < OffHeapProfile.COLUMNS;j++) {
+				if(Double.doubleToLongBits(expected.get(j, i)) != Double.doubleToLongBits(actual.get(j, i))) {
+					throw new AssertionError("Column " + j + ", point " + i + " changed");
+				}
+			}
+		}
+		if(profileFile.v_max != 12 || profileFile.a_max != 18 || profileFile.j_max != 24
+				|| profileFile.w_width != 2.2 || profileFile.dt != 0.01
+				|| profileFile.i_sample_count != 100 || profileFile.i_sample_length != 0.005) {
+			throw new AssertionError("Mapped profile has the wrong parameters");
+		}
+		System.out.format("Mapped %d points from %d bytes\n", length, output.length());
+		
+		// Damaged files should be rejected
+		try(FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE)) {
+			ByteBuffer version = ByteBuffer.allocate(4);
+			version.putInt(0, Integer.reverseBytes(ProfileFile.VERSION + 1));
+			channel.write(version, 4);
+			expectFailure(output);
+			channel.write(ByteBuffer.wrap(new byte[] {'C'}), 0);
+			expectFailure(output);
+		}
+		generator.generate(input, output);
+		try(FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE)) {
+			channel.truncate(output.length() - 1);
+		}
+		expectFailure(output);
+	}
+	
+	private static void expectFailure(File file) {
+		try {
+			ProfileFile.map(file);
+		}
+		catch (IOException ex) {
+			System.out.println(ex.getMessage());
+			return;
+		}
+		throw new AssertionError("Damaged profile was mapped");
+	}
+}
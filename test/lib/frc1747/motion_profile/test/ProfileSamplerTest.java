@@ -0,0 +1,169 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Random;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.generator._1d.ProfileSampler;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class ProfileSamplerTest {
+	public static void main(String[] args) {
+		// Random profiles with uneven times, including waypoints at the same time
+		Random random = new Random(1747);
+		double[] expected = new double[4];
+		double[] state = new double[4];
+		double[] fast = new double[4];
+		double maxError = 0;
+		double maxMismatch = 0;
+		for(int n = 0;n < 50;n++) {
+			int length = 1 + random.nextInt(300);
+			Trajectory profilePoints = new Trajectory(length);
+			double[] angularProfilePoints = new double[length];
+			double[] profileTimes = new double[length];
+			for(int i = 0;i < length;i++) {
+				profilePoints.v[i] = random.nextInt(10) == 0 ? 0 : random.nextGaussian() * 3;
+				angularProfilePoints[i] = random.nextGaussian();
+				if(i > 0) {
+					double dt = random.nextInt(10) == 0 ? 0 : random.nextDouble() * 0.1;
+					profileTimes[i] = profileTimes[i-1] + dt;
+					profilePoints.x[i] = profilePoints.x[i-1] + (profilePoints.v[i-1] + profilePoints.v[i])/2 * dt;
+				}
+			}
+			ProfileSampler sampler = new ProfileSampler(profilePoints, angularProfilePoints, profileTimes);
+			
+			// Random access and the monotonic fast path should both match searching every waypoint
+			double duration = profileTimes[length-1];
+			for(int i = 0;i <= 1000;i++) {
+				double t = i * (duration + 0.2) / 1000 - 0.1;
+				sampler.sampleNext(t, fast);
+				linearSample(profilePoints, angularProfilePoints, profileTimes, t, expected);
+				// Jump somewhere else so the next random access starts from a different waypoint
+				sampler.sample(duration * random.nextDouble(), state);
+				sampler.sample(t, state);
+				for(int j = 0;j < 4;j++) {
+					maxError = Math.max(maxError, Math.abs(expected[j] - state[j]));
+					maxMismatch = Math.max(maxMismatch, Math.abs(fast[j] - state[j]));
+				}
+			}
+		}
+		
+		// Resetting to a shorter profile should not use the index of the longer one
+		Trajectory longPoints = new Trajectory(1000);
+		double[] longTimes = new double[1000];
+		for(int i = 0;i < 1000;i++) {
+			longTimes[i] = i;
+		}
+		ProfileSampler reused = new ProfileSampler(longPoints, new double[1000], longTimes);
+		int maxIndexMismatch = 0;
+		for(int n = 0;n < 50;n++) {
+			int length = 2 + random.nextInt(20);
+			Trajectory profilePoints = new Trajectory(length);
+			double[] angularProfilePoints = new double[length];
+			double[] profileTimes = new double[length];
+			for(int i = 1;i < length;i++) {
+				profileTimes[i] = profileTimes[i-1] + random.nextDouble() * 0.1;
+			}
+			reused.reset(profilePoints, angularProfilePoints, profileTimes);
+			ProfileSampler fresh = new ProfileSampler(profilePoints, angularProfilePoints, profileTimes);
+			double duration = profileTimes[length-1];
+			for(int i = 0;i <= 1000;i++) {
+				double t = i * duration / 1000;
+				double[] times = {t, Math.nextDown(t), Math.nextUp(t)};
+				for(double time : times) {
+					maxIndexMismatch = Math.max(maxIndexMismatch, Math.abs(reused.indexOf(time) - fresh.indexOf(time)));
+				}
+			}
+			reused.reset(longPoints, new double[1000], longTimes);
+		}
+		
+		// A generated profile should cover the whole path
+		Waypoint[] waypoints = new Waypoint[5];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = i * 3;
+			waypoints[i].y = (i % 2) * 6;
+			waypoints[i].v_t = Math.PI/4;
+			waypoints[i].v_m = 3;
+			waypoints[i].reverse = i == 2;
+		}
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		SegmentBuffer profileSegments = new SegmentBuffer(0);
+		SplineGenerator.flattenProfile(splines, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH,
+				profileSegments);
+		TrajectoryPipeline pipeline = new TrajectoryPipeline().generate(profileSegments);
+		ProfileSampler sampler = pipeline.getSampler();
+		double distance = 0;
+		double angle = 0;
+		for(int i = 0;i < profileSegments.length;i++) {
+			distance += profileSegments.ds[i];
+			angle += profileSegments.dtheta[i];
+		}
+		sampler.sample(pipeline.getProfileTime(), state);
+		double endError = Math.max(Math.abs(state[0] - distance), Math.abs(state[3] - angle));
+		
+		// And the position should be the integral of the velocity
+		double maxIntegralError = 0;
+		double[] next = new double[4];
+		double step = 1E-3;
+		sampler.sampleNext(0, state);
+		for(double t = step;t < pipeline.getProfileTime();t += step) {
+			sampler.sampleNext(t, next);
+			double integral = (state[1] + next[1])/2 * step;
+			// Steps across a waypoint are only as exact as the trapezoid rule
+			double bound = Math.abs(next[2] - state[2]) * step * step;
+			maxIntegralError = Math.max(maxIntegralError, Math.abs(next[0] - state[0] - integral) - bound);
+			System.arraycopy(next, 0, state, 0, 4);
+		}
+		
+		System.out.format("Max error: %g, Max mismatch: %g, End error: %g, Max integral error: %g\n",
+				maxError, maxMismatch, endError, maxIntegralError);
+		if(maxError > 1E-12) {
+			throw new AssertionError("Sampling does not match searching every waypoint");
+		}
+		if(maxIndexMismatch > 0) {
+			throw new AssertionError("A reset sampler does not find the same waypoints as a new one");
+		}
+		if(maxMismatch > 0) {
+			throw new AssertionError("The monotonic fast path does not match random access");
+		}
+		if(endError > 1E-9) {
+			throw new AssertionError("The sampled profile does not end at the end of the path");
+		}
+		if(maxIntegralError > 1E-12) {
+			throw new AssertionError("The sampled position is not the integral of the velocity");
+		}
+	}
+	
+	private static void linearSample(Trajectory profilePoints, double[] angularProfilePoints, double[] profileTimes,
+			double t, double[] state) {
+		int length = profilePoints.length;
+		if(length < 2 || t <= 0 || t >= profileTimes[length-1]) {
+			int i = t <= 0 ? 0 : length-1;
+			state[0] = profilePoints.x[i];
+			state[1] = profilePoints.v[i];
+			state[2] = 0;
+			state[3] = angularProfilePoints[i];
+			return;
+		}
+		int k = 0;
+		while(profileTimes[k+1] <= t) {
+			k++;
+		}
+		double tau = t - profileTimes[k];
+		double a = (profilePoints.v[k+1] - profilePoints.v[k]) / (profileTimes[k+1] - profileTimes[k]);
+		state[0] = profilePoints.x[k] + profilePoints.v[k]*tau + a*tau*tau/2;
+		state[1] = profilePoints.v[k] + a*tau;
+		state[2] = a;
+		double fraction = 0;
+		if(profilePoints.x[k+1] != profilePoints.x[k]) {
+			fraction = (state[0] - profilePoints.x[k]) / (profilePoints.x[k+1] - profilePoints.x[k]);
+			fraction = Math.min(Math.max(fraction, 0), 1);
+		}
+		state[3] = angularProfilePoints[k] + (angularProfilePoints[k+1] - angularProfilePoints[k]) * fraction;
+	}
+}
@@ -0,0 +1,42 @@
+package lib.frc1747.motion_profile.test;
+
+import java.lang.management.ManagementFactory;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.generator._1d.ProfileWorkspace;
+
+public class ProfileWorkspaceTest {
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		
+		ProfileWorkspace workspace = new ProfileWorkspace();
+		long allocated = 0;
+		for(int n = 0;n < 100;n++) {
+			// Alternate between a long path and a shorter one
+			SegmentBuffer segments = workspace.getProfileSegments();
+			segments.setLength(n % 2 == 0 ? 4000 : 3000);
+			for(int i = 0;i < segments.length;i++) {
+				segments.ds[i] = Parameters.I_SAMPLE_LENGTH;
+				segments.dtheta[i] = Math.sin(i * 0.002) * 0.001;
+			}
+			
+			long start = threads.getThreadAllocatedBytes(thread);
+			workspace.generate(null,
+					Parameters.V_MAX, Parameters.A_MAX, Parameters.J_MAX, Parameters.W_WIDTH, Parameters.DT,
+					true, true);
+			long end = threads.getThreadAllocatedBytes(thread);
+			// Skip the first generations while the JIT compiler warms up
+			if(n >= 50) {
+				allocated += end - start;
+			}
+		}
+		
+		System.out.format("Allocated after warming up: %d bytes\n", allocated);
+		if(allocated > 0) {
+			throw new AssertionError("Repeated generation allocated memory");
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package lib.frc1747.motion_profile.test;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._1d.SegmentedProfileGenerator;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class SegmentedProfileTest {
+	public static void main(String[] args) {
+		// A path that reverses direction at every waypoint
+		Waypoint[] waypoints = new Waypoint[6];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = i * 2;
+			waypoints[i].y = (i % 2) * 8;
+			waypoints[i].v_t = -Math.PI/4;
+			waypoints[i].v_m = 2;
+			waypoints[i].a_t = -Math.PI/2;
+			waypoints[i].a_m = 5;
+			waypoints[i].reverse = i % 2 == 1;
+		}
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		double[][] profileSegments = SplineGenerator.flattenProfile(splines,
+				Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+		
+		// Serial reference
+		double[][] profilePoints = ProfileGenerator.primaryProfileIntegrate(profileSegments, 0);
+		ProfileGenerator.skidSteerLimitVelocities(profilePoints, profileSegments,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH);
+		int[] cusps = SegmentedProfileGenerator.findCusps(profileSegments);
+		for(int i = 0;i < cusps.length;i++) {
+			profilePoints[cusps[i]][1] = 0;
+			profilePoints[cusps[i]][2] = 0;
+		}
+		profilePoints[0][1] = 0;
+		profilePoints[0][2] = 0;
+		profilePoints[profilePoints.length-1][1] = 0;
+		profilePoints[profilePoints.length-1][2] = 0;
+		ProfileGenerator.limitVelocities(profilePoints);
+		double[] profileTimes = ProfileGenerator.timesFromPoints(profilePoints);
+		double[][] timePoints = ProfileGenerator.profileFromPoints(profilePoints, profileTimes, Parameters.DT);
+		
+		// Segmented
+		SegmentedProfileGenerator generator = new SegmentedProfileGenerator();
+		double[][] segmentedPoints = generator.limitedPointsFromSegments(profileSegments, null,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH, true, true);
+		double[] segmentedTimes = generator.timesFromPoints(segmentedPoints);
+		double[][] segmentedTimePoints = generator.profileFromPoints(segmentedPoints, segmentedTimes, Parameters.DT);
+		
+		double maxError = 0;
+		for(int i = 0;i < profilePoints.length;i++) {
+			maxError = Math.max(maxError, Math.abs(profilePoints[i][1] - segmentedPoints[i][1]));
+			maxError = Math.max(maxError, Math.abs(profileTimes[i] - segmentedTimes[i]));
+		}
+		if(timePoints.length != segmentedTimePoints.length) {
+			throw new AssertionError("Profile lengths differ");
+		}
+		for(int i = 0;i < timePoints.length;i++) {
+			for(int j = 0;j < 3;j++) {
+				maxError = Math.max(maxError, Math.abs(timePoints[i][j] - segmentedTimePoints[i][j]));
+			}
+		}
+		
+		System.out.format("Cusps: %d, Segments: %d, Max error: %g\n",
+				cusps.length, SegmentedProfileGenerator.findBoundaries(segmentedPoints).length-1, maxError);
+		if(maxError > 1E-6) {
+			throw new AssertionError("Segmented profile does not match the serial profile");
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Arrays;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineCache;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class SplineCacheTest {
+	public static void main(String[] args) {
+		Waypoint[] waypoints = new Waypoint[20];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = (i % 2) * 4;
+			waypoints[i].y = i * 3;
+			waypoints[i].v_m = 5;
+			waypoints[i].reverse = i == 7;
+		}
+		
+		SplineCache cache = new SplineCache();
+		cache.update(waypoints, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+		check(cache, waypoints, waypoints.length - 1);
+		
+		// Drag one waypoint
+		waypoints[10].x += 0.5;
+		cache.update(waypoints, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+		check(cache, waypoints, 2);
+		
+		// Remove a waypoint, which joins its neighbors with a new spline
+		Waypoint[] removed = new Waypoint[waypoints.length - 1];
+		System.arraycopy(waypoints, 0, removed, 0, 5);
+		System.arraycopy(waypoints, 6, removed, 5, removed.length - 5);
+		cache.update(removed, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+		check(cache, removed, 1);
+		
+		System.out.println("Spline cache matches");
+	}
+	
+	private static void check(SplineCache cache, Waypoint[] waypoints, int rebuilt) {
+		if(cache.getRebuiltCount() != rebuilt) {
+			throw new AssertionError("Rebuilt " + cache.getRebuiltCount() + " splines instead of " + rebuilt);
+		}
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		double[][] expected = SplineGenerator.flattenProfile(splines,
+				Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH);
+		if(!Arrays.deepEquals(expected, cache.flattenProfile())) {
+			throw new AssertionError("Cached profile does not match the generated profile");
+		}
+		SegmentBuffer parallel = new SegmentBuffer(0);
+		SplineGenerator.parallelFlattenProfile(splines,
+				Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH, parallel);
+		if(!Arrays.deepEquals(expected, parallel.toRows())) {
+			throw new AssertionError("Parallel profile does not match the generated profile");
+		}
+		if(!Arrays.deepEquals(
+				SplineGenerator.waypointLimitsFromWaypoints(waypoints, splines, Parameters.I_SAMPLE_COUNT),
+				SplineGenerator.waypointLimitsFromArcLengths(waypoints, cache.getArcLengths()))) {
+			throw new AssertionError("Cached waypoint limits do not match");
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package lib.frc1747.motion_profile.test;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.generator._1d.ProfileWorkspace;
+import lib.frc1747.motion_profile.generator._1d.TrajectoryPipeline;
+import lib.frc1747.motion_profile.generator._2d.QuinticBezier;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.generator._2d.Waypoint;
+
+public class TrajectoryPipelineTest {
+	public static void main(String[] args) {
+		// A path that reverses direction at every other waypoint
+		Waypoint[] waypoints = new Waypoint[6];
+		for(int i = 0;i < waypoints.length;i++) {
+			waypoints[i] = new Waypoint();
+			waypoints[i].x = i * 2;
+			waypoints[i].y = (i % 2) * 8;
+			waypoints[i].v_t = -Math.PI/4;
+			waypoints[i].v_m = 2;
+			waypoints[i].a_t = -Math.PI/2;
+			waypoints[i].a_m = 5;
+			waypoints[i].reverse = i % 4 == 2;
+		}
+		QuinticBezier[] splines = SplineGenerator.splinesFromWaypoints(waypoints);
+		
+		// Limit the velocity at the third waypoint
+		double[][] waypointLimits = new double[waypoints.length][5];
+		double s = 0;
+		for(int i = 0;i < waypoints.length;i++) {
+			if(i > 0) {
+				double length = splines[i-1].uniformTimeArcLength(Parameters.I_SAMPLE_COUNT);
+				s += waypoints[i-1].reverse ? -length : length;
+			}
+			waypointLimits[i][0] = s;
+			for(int j = 1;j < 5;j++) {
+				waypointLimits[i][j] = i == 2 ? 1 : 1E3;
+			}
+		}
+		
+		ProfileWorkspace workspace = new ProfileWorkspace();
+		SplineGenerator.flattenProfile(splines, Parameters.I_SAMPLE_COUNT, Parameters.I_SAMPLE_LENGTH,
+				workspace.getProfileSegments());
+		workspace.generate(waypointLimits,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.J_MAX, Parameters.W_WIDTH, Parameters.DT,
+				true, true);
+		
+		TrajectoryPipeline pipeline = new TrajectoryPipeline()
+				.setLimits(Parameters.V_MAX, Parameters.A_MAX, Parameters.J_MAX)
+				.setWheelbaseWidth(Parameters.W_WIDTH)
+				.setTimestep(Parameters.DT)
+				.setWaypointLimits(waypointLimits);
+		SegmentBuffer segments = workspace.getProfileSegments();
+		pipeline.generate(segments);
+		
+		double maxError = Math.max(
+				maxError(workspace.getTimePoints(), pipeline.getTimePoints()),
+				maxError(workspace.getAngularTimePoints(), pipeline.getAngularTimePoints()));
+		System.out.format("Points: %d, Max error: %g\n", pipeline.getTimePoints().length, maxError);
+		// Both sum the boxcar window again at the same time steps, so they should match exactly
+		if(maxError > 0) {
+			throw new AssertionError("Pipeline profile does not match the staged profile");
+		}
+	}
+	
+	private static double maxError(Trajectory expected, Trajectory actual) {
+		if(expected.length != actual.length) {
+			throw new AssertionError("Profile lengths differ");
+		}
+		double maxError = 0;
+		for(int i = 0;i < expected.length;i++) {
+			maxError = Math.max(maxError, Math.abs(expected.x[i] - actual.x[i]));
+			maxError = Math.max(maxError, Math.abs(expected.v[i] - actual.v[i]));
+			maxError = Math.max(maxError, Math.abs(expected.a[i] - actual.a[i]));
+		}
+		return maxError;
+	}
+}
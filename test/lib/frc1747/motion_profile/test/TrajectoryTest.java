@@ -0,0 +1,61 @@
+package lib.frc1747.motion_profile.test;
+
+import java.util.Arrays;
+
+import lib.frc1747.motion_profile.Parameters;
+import lib.frc1747.motion_profile.SegmentBuffer;
+import lib.frc1747.motion_profile.Trajectory;
+import lib.frc1747.motion_profile.generator._1d.ProfileGenerator;
+import lib.frc1747.motion_profile.generator._2d.SplineGenerator;
+import lib.frc1747.motion_profile.gui._1d.BoxcarFilter;
+
+public class TrajectoryTest {
+	public static void main(String[] args) {
+		double[][] profileSegments = SplineGenerator.flattenPseudoProfile(
+				0, 0, 4, Math.PI/4,
+				Parameters.I_SAMPLE_LENGTH);
+		int filterLength = (int)Math.ceil(Parameters.A_MAX/Parameters.J_MAX/Parameters.DT);
+		
+		// Rows
+		double[][] profilePoints = ProfileGenerator.primaryProfileIntegrate(profileSegments, 0);
+		double[] angularProfilePoints = ProfileGenerator.secondaryProfileIntegrate(profileSegments, 1);
+		ProfileGenerator.skidSteerLimitVelocities(profilePoints, profileSegments,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH);
+		profilePoints[0][1] = 0;
+		profilePoints[0][2] = 0;
+		profilePoints[profilePoints.length-1][1] = 0;
+		profilePoints[profilePoints.length-1][2] = 0;
+		ProfileGenerator.sweepLimitVelocities(profilePoints);
+		double[] profileTimes = ProfileGenerator.timesFromPoints(profilePoints);
+		double[][] timePoints = ProfileGenerator.profileFromPoints(profilePoints, profileTimes, Parameters.DT);
+		double[][] angularTimePoints = ProfileGenerator.synchronizedProfileFromProfile(timePoints,
+				profilePoints, angularProfilePoints, profileTimes, Parameters.DT);
+		timePoints = BoxcarFilter.multiFilter(timePoints, filterLength);
+		angularTimePoints = BoxcarFilter.multiFilter(angularTimePoints, filterLength);
+		
+		// Columns
+		SegmentBuffer segments = SegmentBuffer.fromRows(profileSegments);
+		Trajectory points = ProfileGenerator.primaryProfileIntegrate(segments);
+		double[] angularPoints = ProfileGenerator.secondaryProfileIntegrate(segments);
+		ProfileGenerator.skidSteerLimitVelocities(points, segments,
+				Parameters.V_MAX, Parameters.A_MAX, Parameters.W_WIDTH);
+		points.v[0] = 0;
+		points.a[0] = 0;
+		points.v[points.length-1] = 0;
+		points.a[points.length-1] = 0;
+		ProfileGenerator.sweepLimitVelocities(points);
+		double[] times = ProfileGenerator.timesFromPoints(points);
+		Trajectory trajectory = ProfileGenerator.profileFromPoints(points, times, Parameters.DT);
+		Trajectory angularTrajectory = ProfileGenerator.synchronizedProfileFromProfile(trajectory,
+				points, angularPoints, times, Parameters.DT);
+		trajectory = BoxcarFilter.multiFilter(trajectory, filterLength);
+		angularTrajectory = BoxcarFilter.multiFilter(angularTrajectory, filterLength);
+		
+		if(	!Arrays.equals(profileTimes, times) ||
+			!Arrays.deepEquals(timePoints, trajectory.toRows()) ||
+			!Arrays.deepEquals(angularTimePoints, angularTrajectory.toRows())) {
+			throw new AssertionError("Column profile does not match the row profile");
+		}
+		System.out.println("Column profile matches the row profile");
+	}
+}